@@ -0,0 +1,75 @@
+package es.codeurjc.web.nitflex.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the JSON results of a JMH run with a stored baseline and fails when any
+ * benchmark got slower than the allowed ratio. Run by the 'jmh' profile after the
+ * benchmarks; a baseline is stored by copying the results of a run on the same machine:
+ *
+ * <pre>
+ * cp target/jmh-result.json src/jmh/baseline.json
+ * </pre>
+ *
+ * Arguments: the results, the baseline and the maximum regression (0.2 is 20% slower).
+ */
+public class BaselineComparison {
+
+    public static void main(String[] args) throws IOException {
+        File results = new File(args[0]);
+        File baseline = new File(args[1]);
+        double maxRegression = Double.parseDouble(args[2]);
+        if (!baseline.exists()) {
+            System.out.println("No JMH baseline at " + baseline + ", copy " + results + " there to use it as one");
+            return;
+        }
+        Map<String, JsonNode> base = scores(baseline);
+        int regressions = 0;
+        System.out.printf("%-75s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, JsonNode> entry : scores(results).entrySet()) {
+            JsonNode current = entry.getValue();
+            JsonNode previous = base.get(entry.getKey());
+            if (previous == null) {
+                System.out.printf("%-75s %14s %14.3f %9s%n", entry.getKey(), "-", score(current), "new");
+                continue;
+            }
+            // Throughput is better when higher, the other modes measure time
+            double change = (score(current) - score(previous)) / score(previous);
+            double regression = current.path("mode").asText().equals("thrpt") ? -change : change;
+            boolean failed = regression > maxRegression;
+            if (failed) {
+                regressions++;
+            }
+            System.out.printf("%-75s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), score(previous), score(current),
+                    change * 100, failed ? " REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.err.printf("Benchmarks more than %.0f%% slower than the baseline: %d%n", maxRegression * 100, regressions);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return the results by benchmark and parameters
+     */
+    private static Map<String, JsonNode> scores(File file) throws IOException {
+        Map<String, JsonNode> scores = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText().replaceFirst("^.*\\.benchmark\\.", ""));
+            result.path("params").fields().forEachRemaining(param -> key.append(' ').append(param.getKey())
+                    .append('=').append(param.getValue().asText()));
+            scores.put(key.toString(), result);
+        }
+        return scores;
+    }
+
+    private static double score(JsonNode result) {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+}
@@ -0,0 +1,68 @@
+package es.codeurjc.web.nitflex.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.codeurjc.web.nitflex.Application;
+import es.codeurjc.web.nitflex.dto.film.FilmImportRow;
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.importer.FilmImportFormat;
+import es.codeurjc.web.nitflex.service.importer.FilmImporter;
+
+/**
+ * Starts the application without the web server, on its own embedded H2 database, with
+ * a catalog of the given size imported through the {@link FilmImporter}
+ */
+class BenchmarkApplication {
+
+    static final int REVIEWS_PER_FILM = 3;
+
+    private BenchmarkApplication() {}
+
+    static ConfigurableApplicationContext start(String databaseName, int filmCount) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + databaseName,
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run();
+        context.getBean(UserRepository.class).save(new User("benchmark", "benchmark@example.com"));
+        try {
+            context.getBean(FilmImporter.class).importFilms(new StringReader(catalog(filmCount)), FilmImportFormat.NDJSON);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return context;
+    }
+
+    private static String catalog(int filmCount) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        StringBuilder ndjson = new StringBuilder();
+        try {
+            for (int i = 0; i < filmCount; i++) {
+                List<CreateReviewRequest> reviews = new ArrayList<>();
+                for (int r = 0; r < REVIEWS_PER_FILM; r++) {
+                    reviews.add(new CreateReviewRequest("Review " + r + " of the film " + i, (i + r) % 11));
+                }
+                ndjson.append(objectMapper.writeValueAsString(new FilmImportRow("Film " + i,
+                        "Synopsis of the film number " + i, 1950 + i % 75, "+12", reviews))).append('\n');
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        return ndjson.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package es.codeurjc.web.nitflex.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmMapper;
+import es.codeurjc.web.nitflex.dto.film.FilmMapperImpl;
+import es.codeurjc.web.nitflex.model.Film;
+import es.codeurjc.web.nitflex.model.Review;
+import es.codeurjc.web.nitflex.model.User;
+
+/**
+ * Mapping of lists of films, each one with its reviews and likers, to DTOs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilmMapperBenchmark {
+
+    static final int REVIEWS_PER_FILM = 5;
+
+    static final int LIKERS_PER_FILM = 3;
+
+    @Param({ "100", "10000" })
+    private int filmCount;
+
+    private final FilmMapper filmMapper = new FilmMapperImpl();
+
+    private List<Film> films;
+
+    @Setup
+    public void createFilms() {
+        films = createFilms(filmCount);
+    }
+
+    @Benchmark
+    public List<FilmDTO> toDTO() {
+        return filmMapper.toDTO(films);
+    }
+
+    static List<Film> createFilms(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            User user = new User("user" + i, "user" + i + "@example.com");
+            user.setId(i + 1);
+            users.add(user);
+        }
+        List<Film> films = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Film film = new Film("Film " + i, "Synopsis of the film number " + i, 1950 + i % 75, "+12");
+            film.setId(i + 1L);
+            for (int r = 0; r < REVIEWS_PER_FILM; r++) {
+                Review review = new Review("Review " + r + " of the film " + i, r * 2);
+                review.setId((long) i * REVIEWS_PER_FILM + r + 1);
+                review.setFilm(film);
+                review.setUser(users.get((i + r) % users.size()));
+                film.addReview(review);
+            }
+            for (int u = 0; u < LIKERS_PER_FILM; u++) {
+                film.addUser(users.get((i + u) % users.size()));
+            }
+            films.add(film);
+        }
+        return films;
+    }
+}
@@ -0,0 +1,69 @@
+package es.codeurjc.web.nitflex.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.service.FilmService;
+
+/**
+ * Reading all the films and a random one through {@link FilmService}, against an embedded
+ * H2 database with catalogs of several sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FilmServiceBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    private int catalogSize;
+
+    private ConfigurableApplicationContext context;
+
+    private FilmService filmService;
+
+    private List<Long> ids;
+
+    @Setup
+    public void start() {
+        context = BenchmarkApplication.start("film-service-" + catalogSize, catalogSize);
+        filmService = context.getBean(FilmService.class);
+        ids = context.getBean(FilmRepository.class).findIdsAfter(0, Limit.of(catalogSize));
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<FilmDTO> findAll() {
+        return filmService.findAll();
+    }
+
+    @Benchmark
+    public Optional<FilmDTO> findOne() {
+        return filmService.findOne(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+    }
+}
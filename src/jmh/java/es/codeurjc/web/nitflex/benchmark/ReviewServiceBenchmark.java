@@ -0,0 +1,62 @@
+package es.codeurjc.web.nitflex.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.service.ReviewService;
+
+/**
+ * Adding a review to a random film of a catalog of 1000 films. The reviews are spread
+ * among the films, as the returned film includes all its reviews.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReviewServiceBenchmark {
+
+    private static final CreateReviewRequest REVIEW = new CreateReviewRequest("A benchmark review", 7);
+
+    private ConfigurableApplicationContext context;
+
+    private ReviewService reviewService;
+
+    private List<Long> ids;
+
+    @Setup
+    public void start() {
+        context = BenchmarkApplication.start("review-service", 1000);
+        reviewService = context.getBean(ReviewService.class);
+        ids = context.getBean(FilmRepository.class).findIdsAfter(0, Limit.of(1000));
+    }
+
+    @TearDown
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public FilmDTO addReview() {
+        return reviewService.addReview(ids.get(ThreadLocalRandom.current().nextInt(ids.size())), REVIEW);
+    }
+}
@@ -0,0 +1,13 @@
+package es.codeurjc.web.nitflex.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Enables '@Async' methods, executed by the application task executor
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfiguration {
+
+}
@@ -0,0 +1,91 @@
+package es.codeurjc.web.nitflex.configuration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import es.codeurjc.web.nitflex.service.FilmDetailCache;
+import es.codeurjc.web.nitflex.utils.SqlCountingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+/**
+ * Metrics of the application besides those of Spring Boot (requests, connection pool,
+ * Hibernate statistics, '@Timed' services): the SQL statements and rows of each request,
+ * with its statement budget, and the film detail cache. They are scraped from the management port, see
+ * application.properties.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    static BeanPostProcessor sqlCountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof SqlCountingDataSource)) {
+                    return new SqlCountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    FilterRegistrationBean<SqlMetricsFilter> sqlMetricsFilter(MeterRegistry meterRegistry,
+            @Value("${nitflex.sql.budget.max-statements}") int maxStatements) {
+        return new FilterRegistrationBean<>(new SqlMetricsFilter(meterRegistry, maxStatements));
+    }
+
+    /**
+     * Requests for deleted films are answered by the cache too, so they count as hits
+     */
+    @Bean
+    MeterBinder filmDetailCacheMetrics(FilmDetailCache filmDetailCache) {
+        return new CacheMeterBinder<>(filmDetailCache, "filmDetail", Tags.empty()) {
+
+            @Override
+            protected Long size() {
+                return (long) getCache().stats().entries();
+            }
+
+            @Override
+            protected long hitCount() {
+                FilmDetailCache.Stats stats = getCache().stats();
+                return stats.hits() + stats.deletedHits();
+            }
+
+            @Override
+            protected Long missCount() {
+                return getCache().stats().misses();
+            }
+
+            @Override
+            protected Long evictionCount() {
+                return getCache().stats().evictions();
+            }
+
+            @Override
+            protected long putCount() {
+                return getCache().stats().puts();
+            }
+
+            @Override
+            protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+                Gauge.builder("cache.size.bytes", getCache(), cache -> cache.stats().sizeBytes())
+                        .tags(getTagsWithCacheName())
+                        .description("The size of the cached JSON")
+                        .baseUnit(BaseUnits.BYTES)
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package es.codeurjc.web.nitflex.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables '@Scheduled' methods, such as the reconciliation of the film counters
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+
+}
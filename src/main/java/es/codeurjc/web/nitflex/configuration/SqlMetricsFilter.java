@@ -0,0 +1,89 @@
+package es.codeurjc.web.nitflex.configuration;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import es.codeurjc.web.nitflex.utils.SqlCountingDataSource;
+import es.codeurjc.web.nitflex.utils.SqlCounts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter.MeterProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records the SQL statements executed and the rows read by each request, counted by the
+ * {@link SqlCountingDataSource}, tagged with its method and URI pattern as the
+ * 'http.server.requests' timer.
+ *
+ * Requests that execute more statements than the budget are logged with the shapes of
+ * their statements and counted in 'nitflex.http.sql.over.budget', as they usually load
+ * an association once per row (N+1).
+ */
+public class SqlMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlMetricsFilter.class);
+
+    private final MeterProvider<DistributionSummary> statements;
+
+    private final MeterProvider<DistributionSummary> rows;
+
+    private final MeterProvider<Counter> overBudget;
+
+    private final int maxStatements;
+
+    /**
+     * @param maxStatements the budget of statements of each request
+     */
+    public SqlMetricsFilter(MeterRegistry meterRegistry, int maxStatements) {
+        this.statements = DistributionSummary.builder("nitflex.http.sql.statements")
+                .description("SQL statements executed per request")
+                .baseUnit("statements")
+                .withRegistry(meterRegistry);
+        this.rows = DistributionSummary.builder("nitflex.http.sql.rows")
+                .description("Rows read from the database per request")
+                .baseUnit("rows")
+                .withRegistry(meterRegistry);
+        this.overBudget = Counter.builder("nitflex.http.sql.over.budget")
+                .description("Requests that executed more SQL statements than the budget")
+                .withRegistry(meterRegistry);
+        this.maxStatements = maxStatements;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlCounts counts = SqlCounts.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            counts.stop();
+            String uri = uri(request);
+            Tags tags = Tags.of("method", request.getMethod(), "uri", uri);
+            statements.withTags(tags).record(counts.statements());
+            rows.withTags(tags).record(counts.rows());
+            if (counts.statements() > maxStatements) {
+                overBudget.withTags(tags).increment();
+                log.warn("{} {} ({}) executed {} SQL statements, over the budget of {}:\n  {}", request.getMethod(),
+                        request.getRequestURI(), uri, counts.statements(), maxStatements,
+                        String.join("\n  ", counts.shapes()));
+            }
+        }
+    }
+
+    /**
+     * The pattern of the handler, not the path, so that each endpoint is one series
+     */
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? "UNKNOWN" : pattern.toString();
+    }
+}
@@ -1,25 +1,35 @@
 package es.codeurjc.web.nitflex.configuration;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.web.servlet.error.BasicErrorController;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ModelAttribute;
 
+import es.codeurjc.web.nitflex.controller.web.FilmWebController;
+import es.codeurjc.web.nitflex.repository.UserRepository;
 import es.codeurjc.web.nitflex.service.UserComponent;
 
-@ControllerAdvice
+/**
+ * Header attributes of the web pages, including the error page. The REST controllers
+ * do not render them, so they are not resolved for API requests.
+ */
+@ControllerAdvice(basePackageClasses = FilmWebController.class, assignableTypes = BasicErrorController.class)
 public class UserModelAttributes {
 
     @Autowired
     private UserComponent userComponent;
 
+    @Autowired
+    private UserRepository userRepository;
+
     @ModelAttribute("currentUserName")
     public String userName() {
-        return userComponent.getUser().getName();
+        return userComponent.getCurrentUser().name();
     }
 
     @ModelAttribute("favoritesNum")
-    public Integer favorites() {
-        return userComponent.getUser().getFavoriteFilms().size();
+    public Long favorites() {
+        return userRepository.countFavoriteFilms(userComponent.getCurrentUserId());
     }
 
 }
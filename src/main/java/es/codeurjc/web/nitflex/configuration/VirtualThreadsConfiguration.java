@@ -0,0 +1,65 @@
+package es.codeurjc.web.nitflex.configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import es.codeurjc.web.nitflex.utils.ConcurrencyLimitedDataSource;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * With 'spring.threads.virtual.enabled' the requests and the '@Async' and '@Scheduled'
+ * methods run on virtual threads, which are not limited in number, so the data source is
+ * put behind a {@link ConcurrencyLimitedDataSource}
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadsConfiguration {
+
+    @Bean
+    static BeanPostProcessor concurrencyLimitedDataSource(
+            @Value("${nitflex.datasource.gate.permits}") int permits,
+            @Value("${nitflex.datasource.gate.timeout}") Duration timeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    return new ConcurrencyLimitedDataSource(dataSource, permits, timeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Connections are waited for in the gate instead of in the pool, so the wait of the
+     * pool metrics ('hikaricp.connections.acquire') no longer includes most of it
+     */
+    @Bean
+    MeterBinder dataSourceGateMetrics(DataSource dataSource) {
+        return registry -> {
+            ConcurrencyLimitedDataSource gate = DataSourceUnwrapper.unwrap(dataSource, ConcurrencyLimitedDataSource.class);
+            if (gate == null) {
+                return;
+            }
+            FunctionTimer.builder("nitflex.datasource.gate.wait", gate, ConcurrencyLimitedDataSource::getAcquisitions,
+                    ConcurrencyLimitedDataSource::getWaitNanos, TimeUnit.NANOSECONDS)
+                    .description("Time waiting for a permit to get a connection")
+                    .register(registry);
+            Gauge.builder("nitflex.datasource.gate.waiting", gate, ConcurrencyLimitedDataSource::getQueueLength)
+                    .description("Callers waiting for a permit to get a connection")
+                    .register(registry);
+        };
+    }
+}
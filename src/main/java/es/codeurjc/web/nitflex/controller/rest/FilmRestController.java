@@ -1,10 +1,18 @@
 package es.codeurjc.web.nitflex.controller.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,16 +20,37 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import es.codeurjc.web.nitflex.dto.CursorPage;
 import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
 import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmFacets;
+import es.codeurjc.web.nitflex.dto.film.FilmFilterResult;
+import es.codeurjc.web.nitflex.dto.film.FilmImportReport;
 import es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSuggestion;
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
 import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.dto.review.ReviewSimpleDTO;
+import es.codeurjc.web.nitflex.service.FilmDetailCache;
+import es.codeurjc.web.nitflex.service.FilmExporter;
 import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.GroupCommitService;
 import es.codeurjc.web.nitflex.service.ReviewService;
+import es.codeurjc.web.nitflex.service.importer.FilmImportFormat;
+import es.codeurjc.web.nitflex.service.importer.FilmImporter;
+import es.codeurjc.web.nitflex.service.recommendation.RelatedFilmsService;
+import es.codeurjc.web.nitflex.service.search.FilmSearchService;
+import es.codeurjc.web.nitflex.service.search.TitleSuggestService;
+import es.codeurjc.web.nitflex.service.trending.TrendingService;
+import es.codeurjc.web.nitflex.utils.FilmSort;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 @RestController
@@ -34,28 +63,194 @@ public class FilmRestController {
 	@Autowired
 	private ReviewService reviewService;
 
+	@Autowired
+	private GroupCommitService groupCommitService;
+
+	@Autowired
+	private FilmDetailCache filmDetailCache;
+
+	@Autowired
+	private FilmImporter filmImporter;
+
+	@Autowired
+	private FilmExporter filmExporter;
+
+	@Autowired
+	private FilmSearchService filmSearchService;
+
+	@Autowired
+	private TitleSuggestService titleSuggestService;
+
+	@Autowired
+	private RelatedFilmsService relatedFilmsService;
+
+	@Autowired
+	private TrendingService trendingService;
+
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	/**
+	 * Returns a page of films ordered by id. The cursor of the next page is sent in
+	 * the 'X-Next-Cursor' and 'Link' headers. The whole catalog can still be
+	 * requested with 'unpaged=true'.
+	 */
 	@GetMapping("/")
-	public Collection<FilmDTO> getFilms(){
-		return filmService.findAll();
+	public ResponseEntity<Collection<FilmDTO>> getFilms(@RequestParam(required = false) Long after,
+			@RequestParam(required = false) Integer limit, @RequestParam(defaultValue = "false") boolean unpaged) {
+
+		if (unpaged) {
+			return ResponseEntity.ok(filmService.findAll());
+		}
+		CursorPage<FilmDTO> page = filmService.findPage(after, limit);
+		return ResponseEntity.ok().headers(nextPageHeaders(page, "after")).body(page.items());
+	}
+
+	/**
+	 * Summary mode of the film list ('view=summary'): only id, title, release year,
+	 * age rating, counters and poster of each film, paginated as {@link #getFilms}.
+	 * The 'sort' parameter orders them by id (default), popularity or rating.
+	 */
+	@GetMapping(value = "/", params = "view=summary")
+	public ResponseEntity<Collection<FilmSummaryDTO>> getFilmSummaries(@RequestParam(required = false) String after,
+			@RequestParam(required = false) Integer limit, @RequestParam(required = false) String sort,
+			@RequestParam(defaultValue = "false") boolean unpaged) {
+
+		FilmSort filmSort = FilmSort.fromParam(sort);
+		if (unpaged) {
+			if (filmSort != FilmSort.ID) {
+				throw new IllegalArgumentException("Only the id order can be requested unpaged");
+			}
+			return ResponseEntity.ok(filmService.findAllSummaries());
+		}
+		CursorPage<FilmSummaryDTO> page = filmService.findSummaryPage(filmSort, after, limit);
+		return ResponseEntity.ok().headers(nextPageHeaders(page, "after")).body(page.items());
+	}
+
+	/**
+	 * Films filtered by age rating and release years ('ageRating', 'fromYear' and
+	 * 'toYear', all optional), ordered by release year and paginated as {@link #getFilms}.
+	 * The body includes the number of films of each age rating and release decade.
+	 */
+	@GetMapping("")
+	public ResponseEntity<FilmFilterResult> filterFilms(@RequestParam(required = false) String ageRating,
+			@RequestParam(required = false) Integer fromYear, @RequestParam(required = false) Integer toYear,
+			@RequestParam(required = false) String after, @RequestParam(required = false) Integer limit) {
+
+		CursorPage<FilmSummaryDTO> page = filmService.findFilteredPage(ageRating, fromYear, toYear, after, limit);
+		FilmFacets facets = filmService.findFacets(ageRating, fromYear, toYear);
+		return ResponseEntity.ok().headers(nextPageHeaders(page, "after")).body(new FilmFilterResult(page.items(), facets));
+	}
+
+	private HttpHeaders nextPageHeaders(CursorPage<?> page, String cursorParam) {
+		HttpHeaders headers = new HttpHeaders();
+		if (page.hasNext()) {
+			String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+					.replaceQueryParam(cursorParam, page.nextCursor())
+					.toUriString();
+			headers.add(NEXT_CURSOR_HEADER, page.nextCursor());
+			headers.add(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"");
+		}
+		return headers;
 	}
 
+	/**
+	 * Full-text search over the titles and synopses, from the best to the worst match.
+	 * Small typos in the query are tolerated.
+	 */
+	@GetMapping("/search")
+	public List<FilmSummaryDTO> searchFilms(@RequestParam String q, @RequestParam(required = false) Integer limit) {
+		return filmSearchService.search(q, limit);
+	}
+
+	/**
+	 * Type-ahead of the film titles: the most liked films with a word of the title
+	 * starting with the prefix. It is answered from memory.
+	 */
+	@GetMapping("/suggest")
+	public List<FilmSuggestion> suggestFilms(@RequestParam String prefix, @RequestParam(required = false) Integer limit) {
+		return titleSuggestService.suggest(prefix, limit);
+	}
+
+	/**
+	 * Films with the most recent reviews and favorites, where older activity counts
+	 * less. It is answered from memory.
+	 */
+	@GetMapping("/trending")
+	public List<FilmSummaryDTO> getTrendingFilms(@RequestParam(required = false) Integer limit) {
+		return trendingService.findTrending(limit);
+	}
+
+	/**
+	 * Streams the whole catalog as NDJSON, written while the films are read
+	 */
+	@GetMapping("/export")
+	public void exportFilms(HttpServletResponse response) throws IOException {
+		response.setContentType(FilmExporter.CONTENT_TYPE);
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"films.ndjson\"");
+		filmExporter.export(response.getOutputStream());
+	}
+
+	/**
+	 * Returns the film from the {@link FilmDetailCache}, already serialized
+	 */
 	@GetMapping("/{id}")
-	public ResponseEntity<FilmDTO> getFilm(@PathVariable long id) {
+	public ResponseEntity<byte[]> getFilm(@PathVariable long id) {
 		
-		Optional<FilmDTO> op = filmService.findOne(id);
+		Optional<byte[]> op = filmDetailCache.get(id, filmService::findOne);
 		if(op.isPresent()) {
-			FilmDTO film = op.get();
-			return new ResponseEntity<>(film, HttpStatus.OK);
+			return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(op.get());
 		}else {
 			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 		}
 
 	}
 
+	/**
+	 * Returns the film with only its newest reviews ('reviews' of them), while the
+	 * review count and average score still cover all of them. It is not cached.
+	 */
+	@GetMapping(value = "/{id}", params = "reviews")
+	public ResponseEntity<FilmDTO> getFilmWithNewestReviews(@PathVariable long id, @RequestParam int reviews) {
+		return ResponseEntity.of(filmService.findOneWithNewestReviews(id, reviews));
+	}
+
+	/**
+	 * Films most often liked together with this one by the same users, from the most
+	 * to the least related. It is answered from memory.
+	 */
+	@GetMapping("/{id}/related")
+	public List<FilmSummaryDTO> getRelatedFilms(@PathVariable long id, @RequestParam(required = false) Integer limit) {
+		return relatedFilmsService.findRelated(id, limit);
+	}
+
+	/**
+	 * Returns a page of the reviews of the film from newest to oldest, paginated as
+	 * {@link #getFilms} but with the 'cursor' parameter
+	 */
+	@GetMapping("/{id}/reviews")
+	public ResponseEntity<Collection<ReviewSimpleDTO>> getReviews(@PathVariable long id,
+			@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+
+		CursorPage<ReviewSimpleDTO> page = reviewService.findPage(id, cursor, limit);
+		return ResponseEntity.ok().headers(nextPageHeaders(page, "cursor")).body(page.items());
+	}
+
 	@PostMapping("/")
 	@ResponseStatus(HttpStatus.CREATED)
 	public FilmDTO createFilm(@RequestBody CreateFilmRequest film) {
-		return filmService.save(film);
+		return groupCommitService.saveFilm(film);
+	}
+
+	/**
+	 * Imports the films of a CSV ('text/csv') or NDJSON ('application/x-ndjson') body,
+	 * which is read as it arrives. The report lists the rejected rows.
+	 */
+	@PostMapping(value = "/import", consumes = { "text/csv", "application/x-ndjson" })
+	public FilmImportReport importFilms(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+			InputStream body) throws IOException {
+
+		Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+		return filmImporter.importFilms(new InputStreamReader(body, charset), FilmImportFormat.fromContentType(contentType));
 	}
 
 	@PutMapping("/{id}")
@@ -76,10 +271,20 @@ public class FilmRestController {
 
 	}
 
+	/**
+	 * Deletes several films in one transaction, as {@link #deleteFilm} does with one.
+	 * If any of them does not exist, none is deleted.
+	 */
+	@DeleteMapping({ "", "/" })
+	public ResponseEntity<Void> deleteFilms(@RequestParam List<Long> ids) {
+		filmService.delete(ids);
+		return ResponseEntity.noContent().build();
+	}
+
 	@ResponseStatus(HttpStatus.CREATED)
 	@PostMapping("{filmId}/reviews/")
 	public FilmDTO addReview(@PathVariable long filmId, @Valid @RequestBody CreateReviewRequest review) {
-		return reviewService.addReview(filmId, review);
+		return groupCommitService.addReview(filmId, review);
 	}
 
 	@DeleteMapping("{filmId}/reviews/{reviewId}")
@@ -5,11 +5,16 @@ import java.util.Collection;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import es.codeurjc.web.nitflex.dto.user.FavoritesBatchRequest;
+import es.codeurjc.web.nitflex.dto.user.FavoritesBatchResult;
 import es.codeurjc.web.nitflex.dto.user.UserDTO;
 import es.codeurjc.web.nitflex.dto.user.UserMapper;
+import es.codeurjc.web.nitflex.service.FavoriteFilmService;
 import es.codeurjc.web.nitflex.service.UserService;
 
 @RestController
@@ -22,6 +27,9 @@ public class UserRestController {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private FavoriteFilmService favoriteFilmService;
+
     @GetMapping("/")
     public Collection<UserDTO> getUsers() {
         return userMapper.toDTOs(userService.getUsers());
@@ -32,4 +40,13 @@ public class UserRestController {
         return userMapper.toDTO(userService.getUser(id));
     }
 
+    /**
+     * Adds and removes favorites of the current user in one transaction:
+     * {"add": [1, 2], "remove": [3]}
+     */
+    @PostMapping("/me/favorites")
+    public FavoritesBatchResult updateFavorites(@RequestBody FavoritesBatchRequest request) {
+        return favoriteFilmService.updateFavorites(request);
+    }
+
 }
\ No newline at end of file
@@ -1,34 +1,50 @@
 package es.codeurjc.web.nitflex.controller.web;
 
+import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import es.codeurjc.web.nitflex.dto.CursorPage;
 import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
 import es.codeurjc.web.nitflex.dto.film.FilmDTO;
 import es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
+import es.codeurjc.web.nitflex.dto.film.PosterDTO;
 import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.dto.review.ReviewSimpleDTO;
 import es.codeurjc.web.nitflex.model.Film;
 import es.codeurjc.web.nitflex.service.FavoriteFilmService;
 import es.codeurjc.web.nitflex.service.FilmService;
 import es.codeurjc.web.nitflex.service.ReviewService;
+import es.codeurjc.web.nitflex.service.recommendation.RelatedFilmsService;
 import es.codeurjc.web.nitflex.utils.AgeRatingOptionsUtils;
 import es.codeurjc.web.nitflex.utils.AgeRatingOptionsUtils.AgeRating;
+import es.codeurjc.web.nitflex.utils.ImageUtils;
+import es.codeurjc.web.nitflex.utils.PosterSize;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 @Controller
@@ -42,11 +58,34 @@ public class FilmWebController {
 
 	@Autowired
 	private ReviewService reviewService;
+
+	@Autowired
+	private RelatedFilmsService relatedFilmsService;
+
+	@Autowired
+	private ImageUtils imageUtils;
+
+	private static final Duration POSTER_MAX_AGE = Duration.ofDays(365);
+
+	private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+	private byte[] noImage;
+
+	private String noImageETag;
+
+	@PostConstruct
+	public void loadNoImage() throws IOException {
+		noImage = new ClassPathResource("static/images/no-image.png").getContentAsByteArray();
+		noImageETag = "\"" + imageUtils.contentHash(noImage) + "\"";
+	}
 	
 	@GetMapping("/")
 	public String showFilms(Model model) {
 
-		model.addAttribute("films", filmService.findAll());
+		model.addAttribute("films", filmService.findAllSummaries());
 		
 		return "films";
 	}
@@ -54,11 +93,19 @@ public class FilmWebController {
 	@GetMapping("/films/{id}")
 	public String showFilm(Model model, @PathVariable long id) {
 		
-		Optional<FilmDTO> op = filmService.findOne(id);
+		Optional<FilmDTO> op = filmService.findOneWithNewestReviews(id, ReviewService.DEFAULT_PAGE_SIZE);
 		if(op.isPresent()) {
 			FilmDTO film = op.get();
 			model.addAttribute("film", film);
+			model.addAttribute("filmId", film.id());
+			model.addAttribute("averageScore", String.format(Locale.ROOT, "%.1f", film.averageScore()));
+			if (!film.reviews().isEmpty() && film.reviews().size() < film.reviewCount()) {
+				model.addAttribute("nextCursor", ReviewService.cursorOf(film.reviews().get(film.reviews().size() - 1)));
+			}
 			model.addAttribute("isInFavorites", favoriteFilmService.isFavorite(film));
+			List<FilmSummaryDTO> related = relatedFilmsService.findRelated(id, null);
+			model.addAttribute("related", related);
+			model.addAttribute("hasRelated", !related.isEmpty());
 			return "film";
 		}else {
 			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Film not found");
@@ -144,17 +191,93 @@ public class FilmWebController {
 		return "redirect:/films/" + film.id();
 	}
 
+	/**
+	 * Serves the poster of a film with an ETag (its content hash) and Last-Modified date,
+	 * answering conditional requests with 304 before the image is read. Range requests
+	 * are handled by Spring MVC on the returned resource. Requests that carry the
+	 * current hash in the 'v' parameter can be cached for good.
+	 * The 'size' parameter selects a scaled variant (thumb, card or full); while a
+	 * variant is being generated the full image is served instead.
+	 */
 	@GetMapping("/films/{id}/poster")
-	public ResponseEntity<Object> getMethodName(@PathVariable long id) throws IOException {
-		Resource poster;
-		try {
-			poster = new InputStreamResource(filmService.getPosterFile(id));
-		} catch (Exception e) {
-			ClassPathResource resource = new ClassPathResource("static/images/no-image.png");
-			byte[] imageBytes = resource.getInputStream().readAllBytes();
-			return ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, "image/jpeg").body(imageBytes);
+	public ResponseEntity<Resource> getPoster(@PathVariable long id, @RequestParam(required = false) String v,
+			@RequestParam(required = false) String size, WebRequest request, HttpServletRequest servletRequest)
+			throws IOException {
+
+		Optional<PosterDTO> op = filmService.getPoster(id);
+		if (op.isEmpty()) {
+			return noImage(request);
 		}
-		return ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, "image/jpeg").body(poster);
+
+		PosterDTO poster = op.get();
+		PosterSize requestedSize = PosterSize.fromParam(size);
+		PosterSize servedSize = poster.hasVariant(requestedSize) ? requestedSize : PosterSize.FULL;
+		String eTag = servedSize == PosterSize.FULL
+				? "\"" + poster.hash() + "\""
+				: "\"" + poster.hash() + "-" + servedSize.name().toLowerCase() + "\"";
+		if (request.checkNotModified(eTag, poster.lastModified().getTime())) {
+			return null;
+		}
+		Optional<Resource> image = filmService.getPosterImage(poster, servedSize);
+		if (image.isEmpty()) {
+			return noImage(request);
+		}
+		// A fallback must not be cached for good under the URL of the variant
+		CacheControl cacheControl = poster.hash().equals(v) && servedSize == requestedSize
+				? CacheControl.maxAge(POSTER_MAX_AGE).cachePublic().immutable()
+				: CacheControl.noCache().cachePublic();
+		String contentType = servedSize == PosterSize.FULL ? poster.contentType() : MediaType.IMAGE_JPEG_VALUE;
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(contentType))
+				.eTag(eTag)
+				.lastModified(poster.lastModified().getTime())
+				.cacheControl(cacheControl);
+		if (sendFile(image.get(), servletRequest)) {
+			return response.contentLength(image.get().contentLength()).build();
+		}
+		return response.body(image.get());
+	}
+
+	private ResponseEntity<Resource> noImage(WebRequest request) {
+		if (request.checkNotModified(noImageETag)) {
+			return null;
+		}
+		return ResponseEntity.ok()
+				.contentType(MediaType.IMAGE_PNG)
+				.eTag(noImageETag)
+				.cacheControl(CacheControl.noCache().cachePublic())
+				.body(new ByteArrayResource(noImage));
+	}
+
+	/**
+	 * Lets Tomcat send a whole poster file straight from the page cache to the socket
+	 * (FileChannel.transferTo) once the headers are written, when the connector supports it.
+	 * Range requests are left to Spring MVC.
+	 * @return whether the file will be sent by Tomcat
+	 */
+	private boolean sendFile(Resource image, HttpServletRequest request) throws IOException {
+		if (!image.isFile() || !"GET".equals(request.getMethod()) || request.getHeader(HttpHeaders.RANGE) != null
+				|| !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+			return false;
+		}
+		File file = image.getFile();
+		request.setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+		request.setAttribute(SENDFILE_START_ATTR, 0L);
+		request.setAttribute(SENDFILE_END_ATTR, file.length());
+		return true;
+	}
+
+	/**
+	 * Renders the next page of reviews of a film as an HTML fragment, which the film
+	 * page appends when more reviews are requested
+	 */
+	@GetMapping("/films/{filmId}/reviews")
+	public String showReviews(Model model, @PathVariable long filmId, @RequestParam String cursor) {
+		CursorPage<ReviewSimpleDTO> page = reviewService.findPage(filmId, cursor, null);
+		model.addAttribute("filmId", filmId);
+		model.addAttribute("reviews", page.items());
+		model.addAttribute("nextCursor", page.nextCursor());
+		return "reviews";
 	}
 
 	@PostMapping("/films/{filmId}/reviews")
@@ -0,0 +1,29 @@
+package es.codeurjc.web.nitflex.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of results obtained by keyset pagination
+ * @param items the items of the page
+ * @param nextCursor the cursor to request the following page, or null if this is the last one
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    /**
+     * Builds a page from rows read with a limit of one more than the page size, so that
+     * the extra row tells whether there is a following page
+     * @param cursor the cursor of the page that follows the given item
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int pageSize, Function<T, String> cursor) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new CursorPage<>(items, cursor.apply(items.get(pageSize - 1)));
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,6 @@
+package es.codeurjc.web.nitflex.dto.film;
+
+/**
+ * Number of films with a given value of a facet (an age rating or a release year)
+ */
+public record FacetCount<T>(T value, long count) {}
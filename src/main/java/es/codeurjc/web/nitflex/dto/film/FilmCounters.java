@@ -0,0 +1,6 @@
+package es.codeurjc.web.nitflex.dto.film;
+
+/**
+ * Counters kept in the film row, see {@link es.codeurjc.web.nitflex.model.Film}
+ */
+public record FilmCounters(long likeCount, long reviewCount, double averageScore) {}
@@ -0,0 +1,8 @@
+package es.codeurjc.web.nitflex.dto.film;
+
+/**
+ * A film as written by the catalog export, one per line. It can be imported back, see
+ * {@link FilmImportRow}
+ */
+public record FilmExportRow(Long id, String title, String synopsis, int releaseYear, String ageRating,
+        long likeCount, long reviewCount, double averageScore) {}
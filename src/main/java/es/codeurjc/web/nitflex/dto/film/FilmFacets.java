@@ -0,0 +1,12 @@
+package es.codeurjc.web.nitflex.dto.film;
+
+import java.util.Map;
+
+/**
+ * Counts of the films matching a filter, by age rating and by release decade. Each facet
+ * is counted with the filter of the other one only, so that it shows how many films
+ * each of its values would select.
+ * @param ageRatings the number of films of every age rating, in ascending order
+ * @param releaseDecades the number of films of each decade with films ("1990-1999"), in ascending order
+ */
+public record FilmFacets(Map<String, Long> ageRatings, Map<String, Long> releaseDecades) {}
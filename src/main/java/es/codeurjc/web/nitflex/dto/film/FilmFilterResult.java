@@ -0,0 +1,8 @@
+package es.codeurjc.web.nitflex.dto.film;
+
+import java.util.List;
+
+/**
+ * A page of the films matching a filter, and the facet counts of the filter
+ */
+public record FilmFilterResult(List<FilmSummaryDTO> films, FilmFacets facets) {}
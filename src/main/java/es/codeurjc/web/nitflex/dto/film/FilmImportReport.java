@@ -0,0 +1,20 @@
+package es.codeurjc.web.nitflex.dto.film;
+
+import java.util.List;
+
+/**
+ * Result of a bulk import of films
+ * @param imported the number of films inserted
+ * @param importedReviews the number of reviews inserted with them
+ * @param rejected the number of rows that were not valid
+ * @param rejectedRows the first rejected rows, with the reason
+ * @param rowsPerSecond the rows read (valid or not) per second
+ */
+public record FilmImportReport(long imported, long importedReviews, long rejected, List<RejectedRow> rejectedRows,
+        long elapsedMillis, double rowsPerSecond) {
+
+    /**
+     * @param line the line of the input, starting at 1
+     */
+    public record RejectedRow(long line, String reason) {}
+}
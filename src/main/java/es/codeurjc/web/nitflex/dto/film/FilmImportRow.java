@@ -0,0 +1,11 @@
+package es.codeurjc.web.nitflex.dto.film;
+
+import java.util.List;
+
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+
+/**
+ * A film read from an import file, with its reviews (only in NDJSON files)
+ */
+public record FilmImportRow(String title, String synopsis, Integer releaseYear, String ageRating,
+        List<CreateReviewRequest> reviews) {}
@@ -0,0 +1,3 @@
+package es.codeurjc.web.nitflex.dto.film;
+
+public record FilmSuggestion(long id, String title, long likeCount) {}
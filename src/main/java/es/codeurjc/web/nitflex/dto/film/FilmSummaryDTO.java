@@ -0,0 +1,4 @@
+package es.codeurjc.web.nitflex.dto.film;
+
+public record FilmSummaryDTO(Long id, String title, int releaseYear, String ageRating, long likeCount,
+        long reviewCount, double averageScore, String posterHash) {}
@@ -0,0 +1,30 @@
+package es.codeurjc.web.nitflex.dto.film;
+
+import java.util.Date;
+
+import es.codeurjc.web.nitflex.utils.PosterSize;
+
+/**
+ * Metadata of a film poster, enough to answer conditional requests without reading the image.
+ * The hashes identify the images in the poster storage.
+ */
+public record PosterDTO(String hash, String contentType, Date lastModified, String thumbHash, String cardHash) {
+
+    /**
+     * @return the hash of the given variant, or null if it has not been generated yet
+     */
+    public String variantHash(PosterSize size) {
+        return switch (size) {
+            case THUMB -> thumbHash;
+            case CARD -> cardHash;
+            case FULL -> hash;
+        };
+    }
+
+    /**
+     * @return whether the given variant has already been generated
+     */
+    public boolean hasVariant(PosterSize size) {
+        return variantHash(size) != null;
+    }
+}
@@ -0,0 +1,9 @@
+package es.codeurjc.web.nitflex.dto.review;
+
+import java.util.Date;
+
+/**
+ * Flat projection of a review and its author, used to assemble several films at once
+ */
+public record FilmReviewRow(Long filmId, Long id, String text, int score, Date created_at, Long userId,
+        String userName, String userEmail) {}
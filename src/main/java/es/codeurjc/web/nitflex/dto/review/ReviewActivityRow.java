@@ -0,0 +1,8 @@
+package es.codeurjc.web.nitflex.dto.review;
+
+import java.util.Date;
+
+/**
+ * When a film was reviewed, used to seed the trending scores
+ */
+public record ReviewActivityRow(Long id, Long filmId, Date created_at) {}
@@ -0,0 +1,6 @@
+package es.codeurjc.web.nitflex.dto.user;
+
+/**
+ * A film among the favorites of a user
+ */
+public record FavoriteRow(Long userId, Long filmId) {}
@@ -0,0 +1,8 @@
+package es.codeurjc.web.nitflex.dto.user;
+
+import java.util.List;
+
+/**
+ * Films to add to and remove from the favorites of the current user
+ */
+public record FavoritesBatchRequest(List<Long> add, List<Long> remove) {}
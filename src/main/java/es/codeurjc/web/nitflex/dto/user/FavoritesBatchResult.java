@@ -0,0 +1,9 @@
+package es.codeurjc.web.nitflex.dto.user;
+
+import java.util.List;
+
+/**
+ * Films actually added to and removed from the favorites: those that already were,
+ * or were not, favorites are left out
+ */
+public record FavoritesBatchResult(List<Long> added, List<Long> removed) {}
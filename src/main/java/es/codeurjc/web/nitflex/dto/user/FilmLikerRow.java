@@ -0,0 +1,6 @@
+package es.codeurjc.web.nitflex.dto.user;
+
+/**
+ * Flat projection of a user that liked a film, used to assemble several films at once
+ */
+public record FilmLikerRow(Long filmId, Long id, String name, String email) {}
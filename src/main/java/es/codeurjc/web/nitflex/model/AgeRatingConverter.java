@@ -0,0 +1,27 @@
+package es.codeurjc.web.nitflex.model;
+
+import es.codeurjc.web.nitflex.utils.AgeRatingOptionsUtils.AgeRating;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores the age rating of a film ("+18") as its minimum age in a TINYINT column, so that
+ * only the known ratings can be stored and the rating indexes stay small. Films without a
+ * rating are stored as null.
+ */
+@Converter
+public class AgeRatingConverter implements AttributeConverter<String, Byte> {
+
+    @Override
+    public Byte convertToDatabaseColumn(String ageRating) {
+        if (ageRating == null || ageRating.isBlank()) {
+            return null;
+        }
+        return AgeRating.fromDescription(ageRating).getMinimumAge();
+    }
+
+    @Override
+    public String convertToEntityAttribute(Byte minimumAge) {
+        return minimumAge == null ? null : AgeRating.fromMinimumAge(minimumAge).getDescription();
+    }
+}
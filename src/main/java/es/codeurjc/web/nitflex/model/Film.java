@@ -1,25 +1,38 @@
 package es.codeurjc.web.nitflex.model;
 
 import java.sql.Blob;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "film_popularity_idx", columnList = "likeCount DESC, id"),
+        @Index(name = "film_rating_idx", columnList = "averageScore DESC, id"),
+        @Index(name = "film_age_rating_year_idx", columnList = "ageRating, releaseYear, id"),
+        @Index(name = "film_year_idx", columnList = "releaseYear, id") })
 public class Film {
     
     @Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "film_seq")
+	@SequenceGenerator(name = "film_seq", allocationSize = 50)
 	private Long id;
 
     private String title;
@@ -29,11 +42,44 @@ public class Film {
 
     private int releaseYear;
 
+    @Convert(converter = AgeRatingConverter.class)
     private String ageRating;
 
+    /**
+     * Legacy location of the poster. Posters are now kept in the poster storage and
+     * referenced by their hash; this column is only read by the poster migration.
+     */
     @Lob
 	private Blob posterFile;
 
+    private String posterHash;
+
+    private String posterThumbHash;
+
+    private String posterCardHash;
+
+    private String posterContentType;
+
+    private Date posterLastModified;
+
+    /**
+     * Counters of the likes and reviews of the film. They are updated with a single
+     * statement in the transactions that add or remove likes and reviews, and can be
+     * recomputed from the source tables by FilmCountersReconciler. Saving the film only
+     * sets them when it is inserted, so that it does not overwrite concurrent changes.
+     */
+    @Column(updatable = false)
+    private long likeCount;
+
+    @Column(updatable = false)
+    private long reviewCount;
+
+    @Column(updatable = false)
+    private long scoreSum;
+
+    @Column(updatable = false)
+    private double averageScore;
+
     @OneToMany(mappedBy = "film",cascade=CascadeType.ALL)
     private List<Review> reviews;
 
@@ -121,6 +167,91 @@ public class Film {
         this.posterFile = posterFile;
     }
 
+    public String getPosterHash() {
+        return posterHash;
+    }
+
+    public void setPosterHash(String posterHash) {
+        this.posterHash = posterHash;
+    }
+
+    public long getLikeCount() {
+        return likeCount;
+    }
+
+    public void setLikeCount(long likeCount) {
+        this.likeCount = likeCount;
+    }
+
+    public long getReviewCount() {
+        return reviewCount;
+    }
+
+    public void setReviewCount(long reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public long getScoreSum() {
+        return scoreSum;
+    }
+
+    public void setScoreSum(long scoreSum) {
+        this.scoreSum = scoreSum;
+    }
+
+    public double getAverageScore() {
+        return averageScore;
+    }
+
+    public void setAverageScore(double averageScore) {
+        this.averageScore = averageScore;
+    }
+
+    public String getPosterThumbHash() {
+        return posterThumbHash;
+    }
+
+    public void setPosterThumbHash(String posterThumbHash) {
+        this.posterThumbHash = posterThumbHash;
+    }
+
+    public String getPosterCardHash() {
+        return posterCardHash;
+    }
+
+    public void setPosterCardHash(String posterCardHash) {
+        this.posterCardHash = posterCardHash;
+    }
+
+    /**
+     * @return the hashes of the poster and of its scaled variants in the poster storage
+     */
+    public Set<String> posterHashes() {
+        Set<String> hashes = new HashSet<>();
+        for (String hash : new String[] { posterHash, posterThumbHash, posterCardHash }) {
+            if (hash != null) {
+                hashes.add(hash);
+            }
+        }
+        return hashes;
+    }
+
+    public String getPosterContentType() {
+        return posterContentType;
+    }
+
+    public void setPosterContentType(String posterContentType) {
+        this.posterContentType = posterContentType;
+    }
+
+    public Date getPosterLastModified() {
+        return posterLastModified;
+    }
+
+    public void setPosterLastModified(Date posterLastModified) {
+        this.posterLastModified = posterLastModified;
+    }
+
     public String getAgeRating() {
         return ageRating;
     }
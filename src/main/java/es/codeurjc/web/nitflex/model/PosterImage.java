@@ -0,0 +1,45 @@
+package es.codeurjc.web.nitflex.model;
+
+import java.sql.Blob;
+import java.util.Date;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+
+/**
+ * A poster image stored in the database, identified by the hash of its content
+ */
+@Entity
+public class PosterImage {
+
+    @Id
+    private String hash;
+
+    @Lob
+    private Blob data;
+
+    // The last time the image was stored, it is not deleted if it is stored again after being released
+    private Date storedAt;
+
+    public PosterImage() {}
+
+    public PosterImage(String hash, Blob data, Date storedAt) {
+        this.hash = hash;
+        this.data = data;
+        this.storedAt = storedAt;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public Blob getData() {
+        return data;
+    }
+
+    public Date getStoredAt() {
+        return storedAt;
+    }
+
+}
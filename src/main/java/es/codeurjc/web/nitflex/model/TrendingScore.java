@@ -0,0 +1,32 @@
+package es.codeurjc.web.nitflex.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/**
+ * Checkpoint of the trending score of a film, as the logarithm of its score at the epoch
+ */
+@Entity
+public class TrendingScore {
+
+    @Id
+    private Long filmId;
+
+    private double logScore;
+
+    public TrendingScore() {}
+
+    public TrendingScore(Long filmId, double logScore) {
+        this.filmId = filmId;
+        this.logScore = logScore;
+    }
+
+    public Long getFilmId() {
+        return filmId;
+    }
+
+    public double getLogScore() {
+        return logScore;
+    }
+
+}
@@ -9,8 +9,12 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.UniqueConstraint;
 
 @Entity(name = "UserTable")
 public class User {
@@ -23,7 +27,16 @@ public class User {
 
     private String email;
     
+    /**
+     * Favorites are added and removed one row at a time through {@code UserRepository},
+     * never by modifying this list, which Hibernate would rewrite entirely
+     */
     @ManyToMany(fetch = FetchType.EAGER)
+    @JoinTable(name = "user_table_favorite_films",
+            joinColumns = @JoinColumn(name = "users_that_liked_id"),
+            inverseJoinColumns = @JoinColumn(name = "favorite_films_id"),
+            uniqueConstraints = @UniqueConstraint(columnNames = { "users_that_liked_id", "favorite_films_id" }),
+            indexes = @Index(columnList = "favorite_films_id"))
     private List<Film> favoriteFilms;
 
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -1,15 +1,349 @@
 package es.codeurjc.web.nitflex.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import es.codeurjc.web.nitflex.dto.film.FacetCount;
+import es.codeurjc.web.nitflex.dto.film.FilmCounters;
+import es.codeurjc.web.nitflex.dto.film.FilmExportRow;
+import es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
+import es.codeurjc.web.nitflex.dto.film.PosterDTO;
+import es.codeurjc.web.nitflex.dto.user.FilmLikerRow;
 import es.codeurjc.web.nitflex.model.Film;
+import jakarta.persistence.QueryHint;
 
 public interface FilmRepository extends JpaRepository<Film, Long> {
 
+    /**
+     * Keyset pagination over the films ordered by id. Only the scalar fields are read, the
+     * reviews and likers are fetched afterwards for the whole page
+     * @param after the last id of the previous page
+     * @param limit the maximum number of films to return
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO(f.id, f.title, f.synopsis, f.releaseYear, f.ageRating)
+            FROM Film f WHERE f.id > :after ORDER BY f.id
+            """)
+    List<FilmSimpleDTO> findSimpleAfter(long after, Limit limit);
 
-    @Query("SELECT f FROM Film f WHERE ageRating = :ageRating AND f.releaseYear BETWEEN :from AND :to")
-    List<Film> findAllByRangeAndAgeRating(int from, int to, String ageRating);
-}
\ No newline at end of file
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO(f.id, f.title, f.synopsis, f.releaseYear, f.ageRating)
+            FROM Film f ORDER BY f.id
+            """)
+    List<FilmSimpleDTO> findAllSimple();
+
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO(f.id, f.title, f.synopsis, f.releaseYear, f.ageRating)
+            FROM Film f WHERE f.id = :id
+            """)
+    Optional<FilmSimpleDTO> findSimpleById(long id);
+
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmCounters(f.likeCount, f.reviewCount, f.averageScore)
+            FROM Film f WHERE f.id = :id
+            """)
+    Optional<FilmCounters> findCountersById(long id);
+
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.user.FilmLikerRow(f.id, u.id, u.name, u.email)
+            FROM Film f JOIN f.usersThatLiked u WHERE f.id IN :filmIds
+            """)
+    List<FilmLikerRow> findLikersByFilmIds(Collection<Long> filmIds);
+
+    /**
+     * Keyset pagination over the summaries of the films ordered by id. The counters are
+     * read from the film row, so neither the likers nor the reviews are joined
+     * @param after the last id of the previous page
+     * @param limit the maximum number of summaries to return
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO(f.id, f.title, f.releaseYear, f.ageRating,
+                f.likeCount, f.reviewCount, f.averageScore, f.posterHash)
+            FROM Film f WHERE f.id > :after ORDER BY f.id
+            """)
+    List<FilmSummaryDTO> findSummariesAfter(long after, Limit limit);
+
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO(f.id, f.title, f.releaseYear, f.ageRating,
+                f.likeCount, f.reviewCount, f.averageScore, f.posterHash)
+            FROM Film f ORDER BY f.id
+            """)
+    List<FilmSummaryDTO> findAllSummaries();
+
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO(f.id, f.title, f.releaseYear, f.ageRating,
+                f.likeCount, f.reviewCount, f.averageScore, f.posterHash)
+            FROM Film f WHERE f.id IN :ids
+            """)
+    List<FilmSummaryDTO> findSummariesByIds(Collection<Long> ids);
+
+    /**
+     * Keyset pagination over the summaries ordered by like count (descending) and id
+     * @param likeCount the like count of the last film of the previous page
+     * @param after the id of the last film of the previous page
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO(f.id, f.title, f.releaseYear, f.ageRating,
+                f.likeCount, f.reviewCount, f.averageScore, f.posterHash)
+            FROM Film f
+            WHERE f.likeCount < :likeCount OR (f.likeCount = :likeCount AND f.id > :after)
+            ORDER BY f.likeCount DESC, f.id
+            """)
+    List<FilmSummaryDTO> findSummariesByPopularity(long likeCount, long after, Limit limit);
+
+    /**
+     * Keyset pagination over the summaries ordered by average score (descending) and id
+     * @param averageScore the average score of the last film of the previous page
+     * @param after the id of the last film of the previous page
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO(f.id, f.title, f.releaseYear, f.ageRating,
+                f.likeCount, f.reviewCount, f.averageScore, f.posterHash)
+            FROM Film f
+            WHERE f.averageScore < :averageScore OR (f.averageScore = :averageScore AND f.id > :after)
+            ORDER BY f.averageScore DESC, f.id
+            """)
+    List<FilmSummaryDTO> findSummariesByRating(double averageScore, long after, Limit limit);
+
+    /**
+     * All the films ordered by id, read with a forward-only cursor. Being a projection,
+     * the rows are not kept in the persistence context while the stream is consumed;
+     * it must be closed, and consumed inside a transaction
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmExportRow(f.id, f.title, f.synopsis, f.releaseYear, f.ageRating,
+                f.likeCount, f.reviewCount, f.averageScore)
+            FROM Film f ORDER BY f.id
+            """)
+    Stream<FilmExportRow> streamExportRows();
+
+    /**
+     * Keyset pagination over the summaries of the films of an age rating released between
+     * two years, ordered by release year and id as the (ageRating, releaseYear, id) index,
+     * so that a page is read as a range of the index
+     * @param releaseYear the release year of the last film of the previous page
+     * @param after the id of the last film of the previous page
+     * @param to the last release year
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO(f.id, f.title, f.releaseYear, f.ageRating,
+                f.likeCount, f.reviewCount, f.averageScore, f.posterHash)
+            FROM Film f
+            WHERE f.ageRating = :ageRating AND f.releaseYear BETWEEN :releaseYear AND :to
+                AND (f.releaseYear > :releaseYear OR (f.releaseYear = :releaseYear AND f.id > :after))
+            ORDER BY f.releaseYear, f.id
+            """)
+    List<FilmSummaryDTO> findSummariesByAgeRatingAndYears(String ageRating, int releaseYear, long after, int to,
+            Limit limit);
+
+    /**
+     * As {@link #findSummariesByAgeRatingAndYears}, for every age rating, over the
+     * (releaseYear, id) index
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO(f.id, f.title, f.releaseYear, f.ageRating,
+                f.likeCount, f.reviewCount, f.averageScore, f.posterHash)
+            FROM Film f
+            WHERE f.releaseYear BETWEEN :releaseYear AND :to
+                AND (f.releaseYear > :releaseYear OR (f.releaseYear = :releaseYear AND f.id > :after))
+            ORDER BY f.releaseYear, f.id
+            """)
+    List<FilmSummaryDTO> findSummariesByYears(int releaseYear, long after, int to, Limit limit);
+
+    /**
+     * Number of films of each age rating released between two years
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FacetCount(f.ageRating, COUNT(f))
+            FROM Film f WHERE f.releaseYear BETWEEN :from AND :to GROUP BY f.ageRating
+            """)
+    List<FacetCount<String>> countByAgeRating(int from, int to);
+
+    /**
+     * Number of films of an age rating released each year
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FacetCount(f.releaseYear, COUNT(f))
+            FROM Film f WHERE f.ageRating = :ageRating GROUP BY f.releaseYear
+            """)
+    List<FacetCount<Integer>> countByReleaseYear(String ageRating);
+
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.FacetCount(f.releaseYear, COUNT(f))
+            FROM Film f GROUP BY f.releaseYear
+            """)
+    List<FacetCount<Integer>> countByReleaseYear();
+
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.PosterDTO(f.posterHash, f.posterContentType, f.posterLastModified,
+                f.posterThumbHash, f.posterCardHash)
+            FROM Film f WHERE f.id = :id AND f.posterHash IS NOT NULL
+            """)
+    Optional<PosterDTO> findPosterById(long id);
+
+    /**
+     * Stores the hashes of the scaled variants of a poster, unless the poster has been
+     * replaced since they were generated
+     * @return the number of updated films
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE Film f SET f.posterThumbHash = :thumbHash, f.posterCardHash = :cardHash
+            WHERE f.id = :id AND f.posterHash = :posterHash
+            """)
+    int updatePosterVariants(long id, String posterHash, String thumbHash, String cardHash);
+
+    /**
+     * Keyset pagination over the ids of the films whose poster has no scaled variants yet
+     */
+    @Query("""
+            SELECT f.id FROM Film f
+            WHERE f.id > :after AND f.posterHash IS NOT NULL AND (f.posterThumbHash IS NULL OR f.posterCardHash IS NULL)
+            ORDER BY f.id
+            """)
+    List<Long> findIdsWithoutPosterVariants(long after, Limit limit);
+
+    /**
+     * Keyset pagination over the ids of the films whose poster is still stored in the
+     * legacy 'poster_file' column
+     */
+    @Query("SELECT f.id FROM Film f WHERE f.id > :after AND f.posterFile IS NOT NULL ORDER BY f.id")
+    List<Long> findIdsWithLegacyPoster(long after, Limit limit);
+
+    @Query("SELECT f.id FROM Film f WHERE f.id IN :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    /**
+     * Returns the ids of the existing films, locking their rows until the transaction ends.
+     * Concurrent favorite changes of a film then check and insert the favorite rows one
+     * after another, instead of both inserting the same row.
+     */
+    @Query(value = "SELECT id FROM film WHERE id IN :ids ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockExistingIds(Collection<Long> ids);
+
+    @Query("SELECT f.id FROM Film f WHERE f.id > :after ORDER BY f.id")
+    List<Long> findIdsAfter(long after, Limit limit);
+
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.film.PosterDTO(f.posterHash, f.posterContentType, f.posterLastModified,
+                f.posterThumbHash, f.posterCardHash)
+            FROM Film f WHERE f.id IN :ids AND f.posterHash IS NOT NULL
+            """)
+    List<PosterDTO> findPostersByIds(Collection<Long> ids);
+
+    /**
+     * @return those of the given poster hashes (full images or variants) that are used by some film
+     */
+    @Query("""
+            SELECT f.posterHash FROM Film f WHERE f.posterHash IN :hashes
+            UNION SELECT f.posterThumbHash FROM Film f WHERE f.posterThumbHash IN :hashes
+            UNION SELECT f.posterCardHash FROM Film f WHERE f.posterCardHash IN :hashes
+            """)
+    List<String> findReferencedPosterHashes(Collection<String> hashes);
+
+    /**
+     * Removes the films from the favorites of every user with a single statement
+     */
+    @Modifying
+    @Query(value = "DELETE FROM user_table_favorite_films WHERE favorite_films_id IN :ids", nativeQuery = true)
+    int deleteFavoritesByFilmIds(Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM Review r WHERE r.film.id IN :ids")
+    int deleteReviewsByFilmIds(Collection<Long> ids);
+
+    /**
+     * Deletes the films without loading them. Their favorites and reviews must have been
+     * deleted before, as this statement does not cascade
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Film f WHERE f.id IN :ids")
+    int deleteFilmsByIds(Collection<Long> ids);
+
+    /**
+     * Adds the given number of likes to the like count of the film
+     */
+    @Modifying
+    @Query("UPDATE Film f SET f.likeCount = f.likeCount + :likes WHERE f.id = :id")
+    int addLikes(long id, long likes);
+
+    /**
+     * Adds a review with the given score to the counters of the film, or removes it
+     * when both the count and the score are negative. The average is computed from the
+     * values before the update, as all the assignments of the statement
+     */
+    @Modifying
+    @Query("""
+            UPDATE Film f SET f.reviewCount = f.reviewCount + :reviews, f.scoreSum = f.scoreSum + :score,
+                f.averageScore = CASE WHEN f.reviewCount + :reviews = 0 THEN 0.0
+                    ELSE CAST(f.scoreSum + :score AS Double) / (f.reviewCount + :reviews) END
+            WHERE f.id = :id
+            """)
+    int addReviews(long id, long reviews, long score);
+
+    /**
+     * Removes the likes and reviews of the user from the counters of the films, before
+     * the user is deleted
+     */
+    @Modifying
+    @Query("""
+            UPDATE Film f SET f.likeCount = f.likeCount - 1
+            WHERE f.id IN (SELECT ff.id FROM UserTable u JOIN u.favoriteFilms ff WHERE u.id = :userId)
+            """)
+    int removeLikesOfUser(long userId);
+
+    @Modifying
+    @Query("""
+            UPDATE Film f SET
+                f.reviewCount = f.reviewCount - (SELECT COUNT(r) FROM Review r WHERE r.film = f AND r.user.id = :userId),
+                f.scoreSum = f.scoreSum - (SELECT COALESCE(SUM(r.score), 0) FROM Review r WHERE r.film = f AND r.user.id = :userId)
+            WHERE f.id IN (SELECT r.film.id FROM Review r WHERE r.user.id = :userId)
+            """)
+    int removeReviewsOfUser(long userId);
+
+    @Modifying
+    @Query("""
+            UPDATE Film f SET f.averageScore = CASE WHEN f.reviewCount = 0 THEN 0.0 ELSE CAST(f.scoreSum AS Double) / f.reviewCount END
+            WHERE f.id IN (SELECT r.film.id FROM Review r WHERE r.user.id = :userId)
+            """)
+    int updateAverageScoreOfUserReviews(long userId);
+
+    /**
+     * Recomputes the counters of the given films from the favorites and reviews tables
+     * @return the number of films whose counters were wrong
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE Film f SET
+                f.likeCount = (SELECT COUNT(u) FROM Film lf JOIN lf.usersThatLiked u WHERE lf = f),
+                f.reviewCount = (SELECT COUNT(r) FROM Review r WHERE r.film = f),
+                f.scoreSum = (SELECT COALESCE(SUM(r.score), 0) FROM Review r WHERE r.film = f)
+            WHERE f.id IN :ids AND (
+                f.likeCount <> (SELECT COUNT(u) FROM Film lf JOIN lf.usersThatLiked u WHERE lf = f)
+                OR f.reviewCount <> (SELECT COUNT(r) FROM Review r WHERE r.film = f)
+                OR f.scoreSum <> (SELECT COALESCE(SUM(r.score), 0) FROM Review r WHERE r.film = f))
+            """)
+    int reconcileCounters(Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE Film f SET f.averageScore = CASE WHEN f.reviewCount = 0 THEN 0.0 ELSE CAST(f.scoreSum AS Double) / f.reviewCount END
+            WHERE f.id IN :ids
+            """)
+    int updateAverageScore(Collection<Long> ids);
+}
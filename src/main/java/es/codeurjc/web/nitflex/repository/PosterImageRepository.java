@@ -0,0 +1,29 @@
+package es.codeurjc.web.nitflex.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import es.codeurjc.web.nitflex.model.PosterImage;
+
+public interface PosterImageRepository extends JpaRepository<PosterImage, String> {
+
+    @Query("SELECT p.hash FROM PosterImage p ORDER BY p.hash")
+    List<String> findHashes(Limit limit);
+
+    @Modifying
+    @Query("UPDATE PosterImage p SET p.storedAt = :storedAt WHERE p.hash = :hash")
+    int updateStoredAt(String hash, Date storedAt);
+
+    /**
+     * Deletes the image if it has not been stored since the given time
+     */
+    @Modifying
+    @Query("DELETE FROM PosterImage p WHERE p.hash = :hash AND (p.storedAt IS NULL OR p.storedAt < :time)")
+    int deleteStoredBefore(String hash, Date time);
+
+}
@@ -1,9 +1,58 @@
 package es.codeurjc.web.nitflex.repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import es.codeurjc.web.nitflex.dto.review.FilmReviewRow;
+import es.codeurjc.web.nitflex.dto.review.ReviewActivityRow;
 import es.codeurjc.web.nitflex.model.Review;
 
 public interface ReviewRepository extends JpaRepository<Review, Long> {
 
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.review.FilmReviewRow(r.film.id, r.id, r.text, r.score, r.created_at, u.id, u.name, u.email)
+            FROM Review r LEFT JOIN r.user u WHERE r.film.id IN :filmIds ORDER BY r.id
+            """)
+    List<FilmReviewRow> findRowsByFilmIds(Collection<Long> filmIds);
+
+    /**
+     * Newest reviews of a film, read backwards on the (film_id, created_at, id) index
+     * @param limit the maximum number of reviews to return
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.review.FilmReviewRow(r.film.id, r.id, r.text, r.score, r.created_at, u.id, u.name, u.email)
+            FROM Review r LEFT JOIN r.user u WHERE r.film.id = :filmId
+            ORDER BY r.created_at DESC, r.id DESC
+            """)
+    List<FilmReviewRow> findNewestRowsByFilmId(long filmId, Limit limit);
+
+    /**
+     * Keyset pagination over the reviews of a film from newest to oldest
+     * @param createdAt the creation date of the last review of the previous page
+     * @param before the id of the last review of the previous page
+     * @param limit the maximum number of reviews to return
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.review.FilmReviewRow(r.film.id, r.id, r.text, r.score, r.created_at, u.id, u.name, u.email)
+            FROM Review r LEFT JOIN r.user u
+            WHERE r.film.id = :filmId AND (r.created_at < :createdAt OR (r.created_at = :createdAt AND r.id < :before))
+            ORDER BY r.created_at DESC, r.id DESC
+            """)
+    List<FilmReviewRow> findRowsByFilmIdBefore(long filmId, Date createdAt, long before, Limit limit);
+
+    /**
+     * Reviews created in [from, to), ordered by id, starting after the given one
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.review.ReviewActivityRow(r.id, r.film.id, r.created_at)
+            FROM Review r WHERE r.id > :after AND r.created_at >= :from AND r.created_at < :to
+            ORDER BY r.id
+            """)
+    List<ReviewActivityRow> findActivityAfter(long after, Date from, Date to, Limit limit);
+
 }
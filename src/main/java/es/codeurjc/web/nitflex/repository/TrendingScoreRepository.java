@@ -0,0 +1,30 @@
+package es.codeurjc.web.nitflex.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import es.codeurjc.web.nitflex.model.TrendingScore;
+
+public interface TrendingScoreRepository extends JpaRepository<TrendingScore, Long> {
+
+    @Query("SELECT t FROM TrendingScore t WHERE t.filmId > :after ORDER BY t.filmId")
+    List<TrendingScore> findAfter(long after, Limit limit);
+
+    /**
+     * Inserts the score of the film or replaces it
+     */
+    @Modifying
+    @Query(value = """
+            MERGE INTO trending_score t
+            USING (VALUES (CAST(:filmId AS BIGINT), CAST(:logScore AS DOUBLE PRECISION))) AS s (film_id, log_score)
+            ON t.film_id = s.film_id
+            WHEN MATCHED THEN UPDATE SET log_score = s.log_score
+            WHEN NOT MATCHED THEN INSERT (film_id, log_score) VALUES (s.film_id, s.log_score)
+            """, nativeQuery = true)
+    int saveScore(long filmId, double logScore);
+
+}
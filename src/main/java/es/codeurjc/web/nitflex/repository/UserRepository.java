@@ -1,13 +1,66 @@
 package es.codeurjc.web.nitflex.repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import es.codeurjc.web.nitflex.dto.user.FavoriteRow;
+import es.codeurjc.web.nitflex.dto.user.UserSimpleDTO;
 import es.codeurjc.web.nitflex.model.User;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByName(String name);
 
+    /**
+     * Reads the users ordered by id, without their favorites and reviews
+     */
+    @Query("SELECT new es.codeurjc.web.nitflex.dto.user.UserSimpleDTO(u.id, u.name, u.email) FROM UserTable u ORDER BY u.id")
+    List<UserSimpleDTO> findSimpleUsers(Limit limit);
+
+    /**
+     * Reads the favorites of all the users ordered by user and film, starting after the
+     * given pair
+     */
+    @Query("""
+            SELECT new es.codeurjc.web.nitflex.dto.user.FavoriteRow(u.id, f.id)
+            FROM UserTable u JOIN u.favoriteFilms f
+            WHERE u.id > :afterUser OR (u.id = :afterUser AND f.id > :afterFilm)
+            ORDER BY u.id, f.id
+            """)
+    List<FavoriteRow> findFavoritesAfter(long afterUser, long afterFilm, Limit limit);
+
+    @Query("SELECT COUNT(f) FROM UserTable u JOIN u.favoriteFilms f WHERE u.id = :userId")
+    long countFavoriteFilms(long userId);
+
+    @Query("SELECT COUNT(f) > 0 FROM UserTable u JOIN u.favoriteFilms f WHERE u.id = :userId AND f.id = :filmId")
+    boolean isFavoriteFilm(long userId, long filmId);
+
+    /**
+     * Inserts the favorite row, unless the film is already a favorite of the user
+     * @return the number of inserted rows
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_table_favorite_films (users_that_liked_id, favorite_films_id)
+            SELECT :userId, :filmId
+            WHERE NOT EXISTS (SELECT 1 FROM user_table_favorite_films
+                WHERE users_that_liked_id = :userId AND favorite_films_id = :filmId)
+            """, nativeQuery = true)
+    int addFavoriteFilm(long userId, long filmId);
+
+    /**
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM user_table_favorite_films
+            WHERE users_that_liked_id = :userId AND favorite_films_id = :filmId
+            """, nativeQuery = true)
+    int removeFavoriteFilm(long userId, long filmId);
+
 }
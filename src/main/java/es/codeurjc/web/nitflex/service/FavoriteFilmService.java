@@ -1,42 +1,125 @@
 package es.codeurjc.web.nitflex.service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import es.codeurjc.web.nitflex.dto.film.FilmDTO;
-import es.codeurjc.web.nitflex.model.Film;
-import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.dto.user.FavoritesBatchRequest;
+import es.codeurjc.web.nitflex.dto.user.FavoritesBatchResult;
 import es.codeurjc.web.nitflex.repository.FilmRepository;
 import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.events.FavoriteChangedEvent;
+import es.codeurjc.web.nitflex.service.exceptions.FilmNotFoundException;
+import io.micrometer.core.annotation.Timed;
+import jakarta.transaction.Transactional;
 
+/**
+ * Favorites are inserted and deleted as single rows of the join table, so a toggle
+ * costs the same whatever the number of favorites of the user. The like count of the
+ * film is updated in the same transaction.
+ */
 @Service
+@Timed("nitflex.service")
 public class FavoriteFilmService {
 
+    public static final int MAX_BATCH_SIZE = 1000;
+
     private UserComponent userComponent;
     private UserRepository userRepository;
     private FilmRepository filmRepository;
+    private ApplicationEventPublisher eventPublisher;
 
-    public FavoriteFilmService(UserComponent userComponent, UserRepository userRepository, FilmRepository filmRepository) {
+    public FavoriteFilmService(UserComponent userComponent, UserRepository userRepository, FilmRepository filmRepository,
+            ApplicationEventPublisher eventPublisher) {
         this.userComponent = userComponent;
         this.userRepository = userRepository;
         this.filmRepository = filmRepository;
+        this.eventPublisher = eventPublisher;
     }
 
+    @Transactional
     public void addToFavorites(long filmId) {
-        User currentUser = userComponent.getUser();
-        Film film = filmRepository.findById(filmId).orElseThrow(() -> new IllegalArgumentException("Film not found"));
-        currentUser.getFavoriteFilms().add(film);
-        userRepository.save(currentUser);
+        if (filmRepository.lockExistingIds(List.of(filmId)).isEmpty()) {
+            throw new IllegalArgumentException("Film not found");
+        }
+        add(userComponent.getCurrentUserId(), filmId);
     }
 
+    @Transactional
     public void removeFromFavorites(long filmId) {
-        User currentUser = userComponent.getUser();
-        Film film = filmRepository.findById(filmId).orElseThrow(() -> new IllegalArgumentException("Film not found"));
-        currentUser.getFavoriteFilms().remove(film);
-        userRepository.save(currentUser);
+        if (!filmRepository.existsById(filmId)) {
+            throw new IllegalArgumentException("Film not found");
+        }
+        remove(userComponent.getCurrentUserId(), filmId);
+    }
+
+    /**
+     * Adds and removes several favorites of the current user in one transaction.
+     * Nothing is changed if any of the films does not exist.
+     */
+    @Transactional
+    public FavoritesBatchResult updateFavorites(FavoritesBatchRequest request) {
+        Set<Long> toAdd = request.add() == null ? Set.of() : new LinkedHashSet<>(request.add());
+        Set<Long> toRemove = request.remove() == null ? Set.of() : new LinkedHashSet<>(request.remove());
+        if (toAdd.size() + toRemove.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " films can be changed at once");
+        }
+        Set<Long> ids = new HashSet<>(toAdd);
+        ids.addAll(toRemove);
+        if (ids.contains(null)) {
+            throw new IllegalArgumentException("The film ids cannot be null");
+        }
+        if (toAdd.stream().anyMatch(toRemove::contains)) {
+            throw new IllegalArgumentException("A film cannot be added and removed at once");
+        }
+        if (!ids.isEmpty()) {
+            ids.removeAll(filmRepository.lockExistingIds(ids));
+        }
+        if (!ids.isEmpty()) {
+            throw new FilmNotFoundException(ids.iterator().next());
+        }
+
+        long userId = userComponent.getCurrentUserId();
+        List<Long> added = new ArrayList<>();
+        for (long filmId : toAdd) {
+            if (add(userId, filmId)) {
+                added.add(filmId);
+            }
+        }
+        List<Long> removed = new ArrayList<>();
+        for (long filmId : toRemove) {
+            if (remove(userId, filmId)) {
+                removed.add(filmId);
+            }
+        }
+        return new FavoritesBatchResult(added, removed);
     }
 
     public boolean isFavorite(FilmDTO film) {
-        return userComponent.getUser().getFavoriteFilms().stream()
-                .anyMatch(f -> f.getId().equals(film.id()));
+        return userRepository.isFavoriteFilm(userComponent.getCurrentUserId(), film.id());
+    }
+
+    private boolean add(long userId, long filmId) {
+        boolean added = userRepository.addFavoriteFilm(userId, filmId) > 0;
+        if (added) {
+            filmRepository.addLikes(filmId, 1);
+            eventPublisher.publishEvent(new FavoriteChangedEvent(userId, filmId, true));
+        }
+        return added;
+    }
+
+    private boolean remove(long userId, long filmId) {
+        boolean removed = userRepository.removeFavoriteFilm(userId, filmId) > 0;
+        if (removed) {
+            filmRepository.addLikes(filmId, -1);
+            eventPublisher.publishEvent(new FavoriteChangedEvent(userId, filmId, false));
+        }
+        return removed;
     }
-}
\ No newline at end of file
+}
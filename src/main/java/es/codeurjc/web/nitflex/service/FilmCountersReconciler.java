@@ -0,0 +1,53 @@
+package es.codeurjc.web.nitflex.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+
+/**
+ * Recomputes the like and review counters of the films from the favorites and reviews
+ * tables, fixing any drift (for example, rows changed directly in the database). Films
+ * are processed in batches, each one in its own short transaction.
+ */
+@Service
+public class FilmCountersReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(FilmCountersReconciler.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private FilmRepository filmRepository;
+
+    public FilmCountersReconciler(FilmRepository filmRepository) {
+        this.filmRepository = filmRepository;
+    }
+
+    /**
+     * @return the number of films whose counters were wrong
+     */
+    @Scheduled(cron = "${nitflex.films.counters.reconcile-cron}")
+    public int reconcile() {
+        long after = 0;
+        int fixed = 0;
+        List<Long> ids;
+        do {
+            ids = filmRepository.findIdsAfter(after, Limit.of(BATCH_SIZE));
+            if (!ids.isEmpty()) {
+                fixed += filmRepository.reconcileCounters(ids);
+                filmRepository.updateAverageScore(ids);
+                after = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == BATCH_SIZE);
+
+        if (fixed > 0) {
+            log.warn("Fixed the like and review counters of {} films", fixed);
+        }
+        return fixed;
+    }
+}
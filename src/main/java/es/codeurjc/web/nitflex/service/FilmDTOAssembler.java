@@ -0,0 +1,103 @@
+package es.codeurjc.web.nitflex.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import es.codeurjc.web.nitflex.dto.film.FilmCounters;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO;
+import es.codeurjc.web.nitflex.dto.review.FilmReviewRow;
+import es.codeurjc.web.nitflex.dto.review.ReviewSimpleDTO;
+import es.codeurjc.web.nitflex.dto.user.FilmLikerRow;
+import es.codeurjc.web.nitflex.dto.user.UserSimpleDTO;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.ReviewRepository;
+
+/**
+ * Builds {@link FilmDTO}s for a list of films with a constant number of queries: the
+ * reviews (with their authors) and the likers of all the films are read with one
+ * 'IN (...)' query each and stitched together in memory.
+ */
+@Component
+public class FilmDTOAssembler {
+
+    /**
+     * Maximum number of ids sent in a single 'IN (...)' clause
+     */
+    static final int MAX_IDS_PER_QUERY = 1000;
+
+    private FilmRepository filmRepository;
+    private ReviewRepository reviewRepository;
+
+    public FilmDTOAssembler(FilmRepository filmRepository, ReviewRepository reviewRepository) {
+        this.filmRepository = filmRepository;
+        this.reviewRepository = reviewRepository;
+    }
+
+    public FilmDTO toDTO(FilmSimpleDTO film) {
+        return toDTOs(List.of(film)).get(0);
+    }
+
+    public List<FilmDTO> toDTOs(List<FilmSimpleDTO> films) {
+        Map<Long, List<ReviewSimpleDTO>> reviews = new HashMap<>();
+        Map<Long, List<UserSimpleDTO>> likers = new HashMap<>();
+
+        for (int from = 0; from < films.size(); from += MAX_IDS_PER_QUERY) {
+            List<Long> ids = films.subList(from, Math.min(from + MAX_IDS_PER_QUERY, films.size())).stream()
+                    .map(FilmSimpleDTO::id)
+                    .toList();
+            for (FilmReviewRow row : reviewRepository.findRowsByFilmIds(ids)) {
+                reviews.computeIfAbsent(row.filmId(), id -> new ArrayList<>()).add(toReviewDTO(row));
+            }
+            for (FilmLikerRow row : filmRepository.findLikersByFilmIds(ids)) {
+                likers.computeIfAbsent(row.filmId(), id -> new ArrayList<>())
+                        .add(new UserSimpleDTO(row.id(), row.name(), row.email()));
+            }
+        }
+
+        List<FilmDTO> result = new ArrayList<>(films.size());
+        for (FilmSimpleDTO film : films) {
+            List<ReviewSimpleDTO> filmReviews = reviews.getOrDefault(film.id(), new ArrayList<>());
+            List<UserSimpleDTO> filmLikers = likers.getOrDefault(film.id(), new ArrayList<>());
+            // The counters are taken from the lists just read, so that they always agree
+            long scoreSum = 0;
+            for (ReviewSimpleDTO review : filmReviews) {
+                scoreSum += review.score();
+            }
+            double averageScore = filmReviews.isEmpty() ? 0 : (double) scoreSum / filmReviews.size();
+            result.add(new FilmDTO(film.id(), film.title(), film.synopsis(), film.releaseYear(), film.ageRating(),
+                    filmReviews, filmLikers, filmLikers.size(), filmReviews.size(), averageScore));
+        }
+        return result;
+    }
+
+    /**
+     * Builds the film with only its newest reviews. The counters are read from the film
+     * row, so the review count and average score still cover all the reviews
+     * @param newestReviews the maximum number of reviews to embed
+     */
+    public FilmDTO toDTOWithNewestReviews(FilmSimpleDTO film, int newestReviews) {
+        List<ReviewSimpleDTO> reviews = newestReviews == 0 ? List.of()
+                : reviewRepository.findNewestRowsByFilmId(film.id(), Limit.of(newestReviews)).stream()
+                        .map(FilmDTOAssembler::toReviewDTO)
+                        .toList();
+        List<UserSimpleDTO> likers = filmRepository.findLikersByFilmIds(List.of(film.id())).stream()
+                .map(row -> new UserSimpleDTO(row.id(), row.name(), row.email()))
+                .toList();
+        FilmCounters counters = filmRepository.findCountersById(film.id())
+                .orElse(new FilmCounters(0, 0, 0));
+        return new FilmDTO(film.id(), film.title(), film.synopsis(), film.releaseYear(), film.ageRating(),
+                reviews, likers, likers.size(), counters.reviewCount(), counters.averageScore());
+    }
+
+    static ReviewSimpleDTO toReviewDTO(FilmReviewRow row) {
+        UserSimpleDTO user = row.userId() == null ? null
+                : new UserSimpleDTO(row.userId(), row.userName(), row.userEmail());
+        return new ReviewSimpleDTO(row.id(), row.text(), row.score(), row.created_at(), user);
+    }
+}
@@ -0,0 +1,251 @@
+package es.codeurjc.web.nitflex.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.service.events.FavoriteChangedEvent;
+import es.codeurjc.web.nitflex.service.events.FilmDeletedEvent;
+import es.codeurjc.web.nitflex.service.events.FilmSavedEvent;
+import es.codeurjc.web.nitflex.service.events.ReviewChangedEvent;
+import es.codeurjc.web.nitflex.service.events.UserDeletedEvent;
+
+/**
+ * Cache of the JSON representation of the film details, as returned by
+ * GET /api/films/{id}. Entries are invalidated once the transaction that changes the
+ * film commits, and the least recently read ones are evicted when their total size
+ * exceeds the configured bytes. The ids of recently deleted films are remembered too,
+ * so that requests for them are answered without querying the database (ids are never
+ * reused).
+ *
+ * Reads take no lock: the order of the reads is approximated by the time of the last
+ * read of each entry, and the cache may exceed its size for a moment while another
+ * thread evicts. Eviction sorts the entries, so it frees {@link #EVICTED_FRACTION} of
+ * the size at once instead of one entry per put.
+ *
+ * A film read while it is being changed must not be cached after the invalidation:
+ * every invalidation increments a generation counter, and a loaded film is only
+ * stored if the counter of its id has not changed since it started to load.
+ */
+@Component
+public class FilmDetailCache {
+
+    private static final int GENERATION_STRIPES = 64;
+
+    static final double EVICTED_FRACTION = 0.1;
+
+    private ObjectMapper objectMapper;
+
+    private final long maxBytes;
+
+    // Eviction stops when the entries take at most these bytes
+    private final long lowWaterBytes;
+
+    private final int maxDeletedIds;
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Set<Long> deletedIds = ConcurrentHashMap.newKeySet();
+
+    private final Queue<Long> deletedOrder = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final AtomicLong sizeBytes = new AtomicLong();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder deletedHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+
+    public FilmDetailCache(ObjectMapper objectMapper,
+            @Value("${nitflex.films.detail-cache.max-bytes}") long maxBytes,
+            @Value("${nitflex.films.detail-cache.max-deleted-ids}") int maxDeletedIds) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        this.lowWaterBytes = (long) (maxBytes * (1 - EVICTED_FRACTION));
+        this.maxDeletedIds = maxDeletedIds;
+    }
+
+    /**
+     * Returns the JSON of the film, loading and caching it if it is not cached
+     * @param loader reads the film from the database
+     * @return the JSON of the film, or empty if the film does not exist
+     */
+    public Optional<byte[]> get(long id, LongFunction<Optional<FilmDTO>> loader) {
+        if (deletedIds.contains(id)) {
+            deletedHits.increment();
+            return Optional.empty();
+        }
+        Entry entry = entries.get(id);
+        if (entry != null) {
+            entry.lastRead = System.nanoTime();
+            hits.increment();
+            return Optional.of(entry.json);
+        }
+        long generation = generations.get(stripe(id));
+        misses.increment();
+
+        Optional<byte[]> json = loader.apply(id).map(this::serialize);
+        json.ifPresent(value -> put(id, value, generation));
+        return json;
+    }
+
+    private void put(long id, byte[] json, long generation) {
+        if (generations.get(stripe(id)) != generation || json.length > maxBytes) {
+            return;
+        }
+        Entry entry = new Entry(json);
+        Entry previous = entries.put(id, entry);
+        if (previous != null) {
+            sizeBytes.addAndGet(-previous.json.length);
+        }
+        sizeBytes.addAndGet(json.length);
+        puts.increment();
+
+        // An invalidation that started after the check above may have missed the new entry
+        if (generations.get(stripe(id)) != generation) {
+            remove(id, entry);
+            return;
+        }
+        evictIfFull();
+    }
+
+    private void evictIfFull() {
+        while (sizeBytes.get() > maxBytes && evictionLock.tryLock()) {
+            try {
+                List<Map.Entry<Long, Entry>> byLastRead = new ArrayList<>(entries.entrySet());
+                byLastRead.sort(Comparator.comparingLong(e -> e.getValue().lastRead));
+                Iterator<Map.Entry<Long, Entry>> eldest = byLastRead.iterator();
+                while (sizeBytes.get() > lowWaterBytes && eldest.hasNext()) {
+                    Map.Entry<Long, Entry> candidate = eldest.next();
+                    if (remove(candidate.getKey(), candidate.getValue())) {
+                        evictions.increment();
+                    }
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private boolean remove(long id, Entry entry) {
+        if (!entries.remove(id, entry)) {
+            return false;
+        }
+        sizeBytes.addAndGet(-entry.json.length);
+        return true;
+    }
+
+    public void invalidate(long id) {
+        generations.incrementAndGet(stripe(id));
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            sizeBytes.addAndGet(-removed.json.length);
+        }
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < generations.length(); i++) {
+            generations.incrementAndGet(i);
+        }
+        for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), deletedHits.sum(), evictions.sum(), puts.sum(), entries.size(),
+                sizeBytes.get());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        invalidate(event.filmId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        invalidate(event.filmId());
+        if (deletedIds.add(event.filmId())) {
+            deletedOrder.add(event.filmId());
+        }
+        while (deletedIds.size() > maxDeletedIds) {
+            Long eldest = deletedOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+            deletedIds.remove(eldest);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        invalidate(event.filmId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        invalidate(event.filmId());
+    }
+
+    /**
+     * The reviews and favorites of the user may be in any film
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        invalidateAll();
+    }
+
+    private byte[] serialize(FilmDTO film) {
+        try {
+            return objectMapper.writeValueAsBytes(film);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error serializing film " + film.id(), e);
+        }
+    }
+
+    private static int stripe(long id) {
+        return (int) Math.floorMod(id, (long) GENERATION_STRIPES);
+    }
+
+    private static class Entry {
+
+        private final byte[] json;
+
+        private volatile long lastRead = System.nanoTime();
+
+        private Entry(byte[] json) {
+            this.json = json;
+        }
+    }
+
+    /**
+     * Counters since the application started, and current size of the cache
+     */
+    public record Stats(long hits, long misses, long deletedHits, long evictions, long puts, int entries,
+            long sizeBytes) {}
+}
@@ -0,0 +1,68 @@
+package es.codeurjc.web.nitflex.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.codeurjc.web.nitflex.dto.film.FilmExportRow;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import jakarta.transaction.Transactional;
+
+/**
+ * Writes the whole catalog as NDJSON, one film per line. The films are read with a
+ * database cursor and each one is written as soon as it is read, so the memory used
+ * does not depend on the size of the catalog.
+ */
+@Service
+public class FilmExporter {
+
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private FilmRepository filmRepository;
+    private ObjectMapper objectMapper;
+
+    public FilmExporter(FilmRepository filmRepository, ObjectMapper objectMapper) {
+        this.filmRepository = filmRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return the number of films written
+     */
+    @Transactional
+    public long export(OutputStream out) throws IOException {
+        long films = 0;
+        try (Stream<FilmExportRow> rows = filmRepository.streamExportRows();
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // Each film goes in its own line, instead of being separated by spaces
+            generator.setRootValueSeparator(null);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<FilmExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                write(generator, iterator.next());
+                generator.writeRaw('\n');
+                films++;
+            }
+        }
+        return films;
+    }
+
+    private void write(JsonGenerator generator, FilmExportRow film) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", film.id());
+        generator.writeStringField("title", film.title());
+        generator.writeStringField("synopsis", film.synopsis());
+        generator.writeNumberField("releaseYear", film.releaseYear());
+        generator.writeStringField("ageRating", film.ageRating());
+        generator.writeNumberField("likeCount", film.likeCount());
+        generator.writeNumberField("reviewCount", film.reviewCount());
+        generator.writeNumberField("averageScore", film.averageScore());
+        generator.writeEndObject();
+    }
+}
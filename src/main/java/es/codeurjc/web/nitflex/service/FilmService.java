@@ -1,57 +1,111 @@
 package es.codeurjc.web.nitflex.service;
 
-import java.io.InputStream;
 import java.sql.Blob;
-import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import es.codeurjc.web.nitflex.dto.CursorPage;
 import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FacetCount;
 import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmFacets;
 import es.codeurjc.web.nitflex.dto.film.FilmMapper;
 import es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
+import es.codeurjc.web.nitflex.dto.film.PosterDTO;
 import es.codeurjc.web.nitflex.model.Film;
-import es.codeurjc.web.nitflex.model.User;
 import es.codeurjc.web.nitflex.repository.FilmRepository;
-import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.events.FilmDeletedEvent;
+import es.codeurjc.web.nitflex.service.events.FilmSavedEvent;
+import es.codeurjc.web.nitflex.service.events.PosterUploadedEvent;
+import es.codeurjc.web.nitflex.service.events.PostersReleasedEvent;
 import es.codeurjc.web.nitflex.service.exceptions.FilmNotFoundException;
+import es.codeurjc.web.nitflex.service.storage.PosterStorage;
+import es.codeurjc.web.nitflex.utils.AgeRatingOptionsUtils.AgeRating;
+import es.codeurjc.web.nitflex.utils.FilmSort;
 import es.codeurjc.web.nitflex.utils.ImageUtils;
+import es.codeurjc.web.nitflex.utils.PosterSize;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 
 @Service
+@Timed("nitflex.service")
 public class FilmService {
 
-	private FilmRepository filmRepository;
+	public static final int DEFAULT_PAGE_SIZE = 20;
+
+	public static final int MAX_PAGE_SIZE = 100;
 
-	private UserRepository userRepository;
+	public static final int MAX_DELETE_SIZE = 1000;
+
+	private FilmRepository filmRepository;
 
 	private ImageUtils imageUtils;
 
 	private FilmMapper filmMapper;
 
-	public FilmService(FilmRepository filmRepository, UserRepository userRepository, ImageUtils imageUtils, FilmMapper filmMapper) {
+	private FilmDTOAssembler filmDTOAssembler;
+
+	private ApplicationEventPublisher eventPublisher;
+
+	private PosterStorage posterStorage;
+
+	public FilmService(FilmRepository filmRepository, ImageUtils imageUtils,
+			FilmMapper filmMapper, FilmDTOAssembler filmDTOAssembler, ApplicationEventPublisher eventPublisher,
+			PosterStorage posterStorage) {
 		this.filmRepository = filmRepository;
-		this.userRepository = userRepository;
 		this.imageUtils = imageUtils;
 		this.filmMapper = filmMapper;
+		this.filmDTOAssembler = filmDTOAssembler;
+		this.eventPublisher = eventPublisher;
+		this.posterStorage = posterStorage;
 	}
 
 	public Optional<FilmDTO> findOne(long id) {
-		return filmRepository.findById(id).map(filmMapper::toDTO);
+		return filmRepository.findSimpleById(id).map(filmDTOAssembler::toDTO);
 	}
 
-	public InputStream getPosterFile(long id) {
-		Film film = filmRepository.findById(id)
-				.orElseThrow(() -> new FilmNotFoundException(id));
-		Blob blob = film.getPosterFile();
-		try {
-			return blob.getBinaryStream();
-		} catch (SQLException e) {
-			throw new RuntimeException("Error getting image from database", e);
+	/**
+	 * Returns the film with only its newest reviews; the rest can be read by pages
+	 * with {@link ReviewService#findPage}
+	 * @param reviews the maximum number of reviews to embed, at most {@link ReviewService#MAX_PAGE_SIZE}
+	 */
+	public Optional<FilmDTO> findOneWithNewestReviews(long id, int reviews) {
+		if (reviews < 0) {
+			throw new IllegalArgumentException("The number of reviews must not be negative");
 		}
+		int newestReviews = Math.min(reviews, ReviewService.MAX_PAGE_SIZE);
+		return filmRepository.findSimpleById(id)
+				.map(film -> filmDTOAssembler.toDTOWithNewestReviews(film, newestReviews));
+	}
+
+	/**
+	 * Returns the metadata of the poster of a film, if it has one
+	 */
+	public Optional<PosterDTO> getPoster(long id) {
+		return filmRepository.findPosterById(id);
+	}
+
+	/**
+	 * Reads the image of the given poster variant from the poster storage
+	 * @return the image, or empty if it is missing from the storage
+	 */
+	public Optional<Resource> getPosterImage(PosterDTO poster, PosterSize size) {
+		return posterStorage.load(poster.variantHash(size));
 	}
 
 	public boolean exist(long id) {
@@ -59,16 +113,183 @@ public class FilmService {
 	}
 
 	public List<FilmDTO> findAll() {
-		return filmMapper.toDTO(filmRepository.findAll());
+		return filmDTOAssembler.toDTOs(filmRepository.findAllSimple());
+	}
+
+	/**
+	 * Returns the films whose id is greater than the given cursor, ordered by id
+	 * @param after the id of the last film of the previous page, or null for the first page
+	 * @param limit the page size, or null for the default one
+	 * @return the page of films and the cursor of the next page
+	 */
+	public CursorPage<FilmDTO> findPage(Long after, Integer limit) {
+		int pageSize = pageSize(limit);
+		List<FilmSimpleDTO> films = filmRepository.findSimpleAfter(after == null ? 0 : after, Limit.of(pageSize + 1));
+		CursorPage<FilmSimpleDTO> page = CursorPage.of(films, pageSize, film -> String.valueOf(film.id()));
+		return new CursorPage<>(filmDTOAssembler.toDTOs(page.items()), page.nextCursor());
+	}
+
+	/**
+	 * Returns the summaries of all the films, as needed by the list views
+	 */
+	public List<FilmSummaryDTO> findAllSummaries() {
+		return filmRepository.findAllSummaries();
+	}
+
+	/**
+	 * Returns a page of film summaries in the given order. The cursor is the id of the
+	 * last film for the id order, and 'likeCount_id' or 'averageScore_id' for the
+	 * popularity and rating orders, which read the counters stored in the films.
+	 * @param after the cursor of the previous page, or null for the first page
+	 * @param limit the page size, or null for the default one
+	 */
+	public CursorPage<FilmSummaryDTO> findSummaryPage(FilmSort sort, String after, Integer limit) {
+		int pageSize = pageSize(limit);
+		Limit rows = Limit.of(pageSize + 1);
+		return switch (sort) {
+			case ID -> CursorPage.of(filmRepository.findSummariesAfter(after == null ? 0 : parseId(after), rows),
+					pageSize, summary -> String.valueOf(summary.id()));
+			case POPULARITY -> {
+				String[] cursor = splitCursor(after);
+				List<FilmSummaryDTO> summaries = cursor == null
+						? filmRepository.findSummariesByPopularity(Long.MAX_VALUE, 0, rows)
+						: filmRepository.findSummariesByPopularity(parseLong(cursor[0], after), parseId(cursor[1]), rows);
+				yield CursorPage.of(summaries, pageSize, summary -> summary.likeCount() + "_" + summary.id());
+			}
+			case RATING -> {
+				String[] cursor = splitCursor(after);
+				List<FilmSummaryDTO> summaries = cursor == null
+						? filmRepository.findSummariesByRating(Double.MAX_VALUE, 0, rows)
+						: filmRepository.findSummariesByRating(parseDouble(cursor[0], after), parseId(cursor[1]), rows);
+				yield CursorPage.of(summaries, pageSize, summary -> summary.averageScore() + "_" + summary.id());
+			}
+		};
+	}
+
+	/**
+	 * Returns a page of the summaries of the films with the given age rating released
+	 * between two years, ordered by release year and id. The cursor is 'releaseYear_id'.
+	 * @param ageRating the age rating, or null for all of them
+	 * @param fromYear the first release year, or null for no lower bound
+	 * @param toYear the last release year, or null for no upper bound
+	 */
+	public CursorPage<FilmSummaryDTO> findFilteredPage(String ageRating, Integer fromYear, Integer toYear,
+			String after, Integer limit) {
+		int pageSize = pageSize(limit);
+		String rating = parseAgeRating(ageRating);
+		int from = fromYear == null ? Integer.MIN_VALUE : fromYear;
+		int to = toYear == null ? Integer.MAX_VALUE : toYear;
+		if (from > to) {
+			throw new IllegalArgumentException("The first year must not be after the last one");
+		}
+		String[] cursor = splitCursor(after);
+		int releaseYear = cursor == null ? from : (int) parseLong(cursor[0], after);
+		long afterId = cursor == null ? 0 : parseId(cursor[1]);
+		Limit rows = Limit.of(pageSize + 1);
+		List<FilmSummaryDTO> summaries = rating == null
+				? filmRepository.findSummariesByYears(releaseYear, afterId, to, rows)
+				: filmRepository.findSummariesByAgeRatingAndYears(rating, releaseYear, afterId, to, rows);
+		return CursorPage.of(summaries, pageSize, summary -> summary.releaseYear() + "_" + summary.id());
+	}
+
+	/**
+	 * Counts the films of each age rating between the given years, and the films of each
+	 * release decade with the given age rating
+	 */
+	public FilmFacets findFacets(String ageRating, Integer fromYear, Integer toYear) {
+		String rating = parseAgeRating(ageRating);
+		Map<String, Long> ageRatings = new LinkedHashMap<>();
+		for (AgeRating value : AgeRating.values()) {
+			ageRatings.put(value.getDescription(), 0L);
+		}
+		for (FacetCount<String> count : filmRepository.countByAgeRating(
+				fromYear == null ? Integer.MIN_VALUE : fromYear, toYear == null ? Integer.MAX_VALUE : toYear)) {
+			if (count.value() != null) {
+				ageRatings.put(count.value(), count.count());
+			}
+		}
+
+		Map<Integer, Long> decades = new TreeMap<>();
+		List<FacetCount<Integer>> years = rating == null
+				? filmRepository.countByReleaseYear()
+				: filmRepository.countByReleaseYear(rating);
+		for (FacetCount<Integer> count : years) {
+			decades.merge(Math.floorDiv(count.value(), 10) * 10, count.count(), Long::sum);
+		}
+		Map<String, Long> releaseDecades = new LinkedHashMap<>();
+		decades.forEach((decade, count) -> releaseDecades.put(decade + "-" + (decade + 9), count));
+		return new FilmFacets(ageRatings, releaseDecades);
+	}
+
+	private String parseAgeRating(String ageRating) {
+		return ageRating == null || ageRating.isBlank() ? null : AgeRating.fromDescription(ageRating).getDescription();
+	}
+
+	private String[] splitCursor(String cursor) {
+		if (cursor == null) {
+			return null;
+		}
+		String[] parts = cursor.split("_");
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor);
+		}
+		return parts;
+	}
+
+	private long parseId(String id) {
+		return parseLong(id, id);
+	}
+
+	private long parseLong(String value, String cursor) {
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor);
+		}
+	}
+
+	private double parseDouble(String value, String cursor) {
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor);
+		}
+	}
+
+	private int pageSize(Integer limit) {
+		if (limit == null) {
+			return DEFAULT_PAGE_SIZE;
+		}
+		if (limit < 1) {
+			throw new IllegalArgumentException("The limit must be greater than 0");
+		}
+		return Math.min(limit, MAX_PAGE_SIZE);
 	}
 
 	public FilmDTO save(CreateFilmRequest film, Blob imageField) {
+		validate(film);
+		Film newFilm = filmMapper.toDomain(film);
+		byte[] poster = setPoster(newFilm, imageField);
+		Film savedFilm = filmRepository.save(newFilm);
+		publishPosterUploaded(savedFilm, poster);
+		eventPublisher.publishEvent(new FilmSavedEvent(savedFilm.getId(), true));
+		return filmMapper.toDTO(savedFilm);
+	}
+
+	static void validate(CreateFilmRequest film) {
 		if (film.title() == null || film.title().isEmpty()) {
 			throw new IllegalArgumentException("The title is empty");
 		}
-		Film newFilm = filmMapper.toDomain(film);
-		newFilm.setPosterFile(imageField);
-		return filmMapper.toDTO(filmRepository.save(newFilm));
+		validateAgeRating(film.ageRating());
+	}
+
+	/**
+	 * Only the known age ratings can be stored; a film may have none
+	 */
+	private static void validateAgeRating(String ageRating) {
+		if (ageRating != null && !ageRating.isBlank()) {
+			AgeRating.fromDescription(ageRating);
+		}
 	}
 
 	public FilmDTO save(CreateFilmRequest film, MultipartFile imageField) {
@@ -88,29 +309,118 @@ public class FilmService {
 
 	@Transactional
 	public FilmDTO update(long filmId, FilmSimpleDTO film, MultipartFile imageField) {
+		validateAgeRating(film.ageRating());
 		Film toUpdateFilm = filmRepository.findById(filmId)
 				.orElseThrow(() -> new FilmNotFoundException(filmId));
 		toUpdateFilm.setTitle(film.title());
 		toUpdateFilm.setSynopsis(film.synopsis());
 		toUpdateFilm.setReleaseYear(film.releaseYear());
 		toUpdateFilm.setAgeRating(film.ageRating());
+		byte[] poster = null;
+		Set<String> previousPosters = Set.of();
 		if (imageField != null && imageField.getSize() > 0) {
-			Blob blobImage = imageUtils.multiPartFileImageToBlob(imageField);
-			toUpdateFilm.setPosterFile(blobImage);
+			previousPosters = toUpdateFilm.posterHashes();
+			poster = setPoster(toUpdateFilm, imageUtils.multiPartFileImageToBlob(imageField));
+		}
+		Film updatedFilm = filmRepository.save(toUpdateFilm);
+		publishPosterUploaded(updatedFilm, poster);
+		publishPostersReleased(previousPosters, updatedFilm);
+		eventPublisher.publishEvent(new FilmSavedEvent(filmId, false));
+		return filmMapper.toDTO(updatedFilm);
+	}
+
+	/**
+	 * Stores the poster of the film in the poster storage and keeps its content hash,
+	 * media type and modification date, so that it can be served with HTTP validators.
+	 * The scaled variants of the previous poster are discarded.
+	 * @return the bytes of the poster, or null if the film has no poster
+	 */
+	private byte[] setPoster(Film film, Blob image) {
+		film.setPosterFile(null);
+		film.setPosterThumbHash(null);
+		film.setPosterCardHash(null);
+		if (image == null) {
+			film.setPosterHash(null);
+			film.setPosterContentType(null);
+			film.setPosterLastModified(null);
+			return null;
+		}
+		byte[] bytes = imageUtils.blobToBytes(image);
+		film.setPosterHash(posterStorage.store(bytes));
+		film.setPosterContentType(imageUtils.detectContentType(bytes));
+		film.setPosterLastModified(new Date());
+		return bytes;
+	}
+
+	/**
+	 * Lets the images that the film no longer uses be deleted once the change commits,
+	 * if no other film uses them
+	 */
+	private void publishPostersReleased(Set<String> previousPosters, Film film) {
+		Set<String> released = new HashSet<>(previousPosters);
+		released.removeAll(film.posterHashes());
+		if (!released.isEmpty()) {
+			eventPublisher.publishEvent(new PostersReleasedEvent(released));
+		}
+	}
+
+	/**
+	 * Lets the scaled variants of the new poster be generated once the film is stored
+	 */
+	private void publishPosterUploaded(Film film, byte[] poster) {
+		if (poster != null) {
+			eventPublisher.publishEvent(new PosterUploadedEvent(film.getId(), film.getPosterHash(), poster));
 		}
-		return filmMapper.toDTO(filmRepository.save(toUpdateFilm));
 	}
 
 	@Transactional
 	public void delete(long id) {
-		Film film = filmRepository.findById(id)
-				.orElseThrow(() -> new FilmNotFoundException(id));
-		for (User u : film.getUsersThatLiked()) {
-			u.getFavoriteFilms().remove(film);
-			userRepository.save(u);
-		}
-		userRepository.flush();
-		filmRepository.deleteById(id);
+		delete(List.of(id));
+	}
+
+	/**
+	 * Deletes the films with one statement per table: their favorites, their reviews
+	 * and the films themselves. Nothing is deleted if any of them does not exist.
+	 * The poster images that are no longer used are deleted after the commit.
+	 */
+	@Transactional
+	public void delete(Collection<Long> ids) {
+		Set<Long> filmIds = new LinkedHashSet<>(ids);
+		if (filmIds.size() > MAX_DELETE_SIZE) {
+			throw new IllegalArgumentException("At most " + MAX_DELETE_SIZE + " films can be deleted at once");
+		}
+		Set<Long> missing = new LinkedHashSet<>(filmIds);
+		if (!filmIds.isEmpty()) {
+			missing.removeAll(filmRepository.findExistingIds(filmIds));
+		}
+		if (!missing.isEmpty()) {
+			throw new FilmNotFoundException(missing.iterator().next());
+		}
+		if (filmIds.isEmpty()) {
+			return;
+		}
+
+		Set<String> posterHashes = new HashSet<>();
+		for (PosterDTO poster : filmRepository.findPostersByIds(filmIds)) {
+			posterHashes.add(poster.hash());
+			if (poster.thumbHash() != null) {
+				posterHashes.add(poster.thumbHash());
+			}
+			if (poster.cardHash() != null) {
+				posterHashes.add(poster.cardHash());
+			}
+		}
+
+		filmRepository.deleteFavoritesByFilmIds(filmIds);
+		filmRepository.deleteReviewsByFilmIds(filmIds);
+		filmRepository.deleteFilmsByIds(filmIds);
+
+		for (long id : filmIds) {
+			eventPublisher.publishEvent(new FilmDeletedEvent(id));
+		}
+		if (!posterHashes.isEmpty()) {
+			eventPublisher.publishEvent(new PostersReleasedEvent(posterHashes));
+		}
 	}
 
 }
@@ -0,0 +1,148 @@
+package es.codeurjc.web.nitflex.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmMapper;
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.dto.review.ReviewMapper;
+import es.codeurjc.web.nitflex.model.Film;
+import es.codeurjc.web.nitflex.model.Review;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.service.events.FilmSavedEvent;
+import es.codeurjc.web.nitflex.service.events.ReviewChangedEvent;
+import es.codeurjc.web.nitflex.service.exceptions.FilmNotFoundException;
+import es.codeurjc.web.nitflex.utils.GroupCommitQueue;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Write path of the films and reviews created through the REST API. By default each
+ * creation commits its own transaction, through {@link FilmService} and
+ * {@link ReviewService}. With 'nitflex.group-commit.enabled' the concurrent creations
+ * are queued and written together, see {@link GroupCommitQueue}.
+ */
+@Service
+public class GroupCommitService {
+
+    private record ReviewRequest(long filmId, long userId, CreateReviewRequest review) {}
+
+    private FilmService filmService;
+    private ReviewService reviewService;
+    private UserComponent userComponent;
+    private FilmRepository filmRepository;
+    private FilmMapper filmMapper;
+    private ReviewMapper reviewMapper;
+    private EntityManager entityManager;
+    private ApplicationEventPublisher eventPublisher;
+
+    private GroupCommitQueue<CreateFilmRequest, FilmDTO> films;
+    private GroupCommitQueue<ReviewRequest, Long> reviews;
+
+    public GroupCommitService(FilmService filmService, ReviewService reviewService, UserComponent userComponent,
+            FilmRepository filmRepository, FilmMapper filmMapper, ReviewMapper reviewMapper,
+            EntityManager entityManager, ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            @Value("${nitflex.group-commit.enabled}") boolean enabled,
+            @Value("${nitflex.group-commit.max-batch-size}") int maxBatchSize,
+            @Value("${nitflex.group-commit.max-wait}") Duration maxWait,
+            @Value("${nitflex.group-commit.commit-timeout}") Duration commitTimeout) {
+        this.filmService = filmService;
+        this.reviewService = reviewService;
+        this.userComponent = userComponent;
+        this.filmRepository = filmRepository;
+        this.filmMapper = filmMapper;
+        this.reviewMapper = reviewMapper;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+        if (enabled) {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            films = new GroupCommitQueue<>("film-group-commit", maxBatchSize, maxWait, commitTimeout,
+                    transactionTemplate, this::writeFilms);
+            reviews = new GroupCommitQueue<>("review-group-commit", maxBatchSize, maxWait, commitTimeout,
+                    transactionTemplate, this::writeReviews);
+        }
+    }
+
+    public FilmDTO saveFilm(CreateFilmRequest film) {
+        if (films == null) {
+            return filmService.save(film);
+        }
+        FilmService.validate(film);
+        return films.submit(film);
+    }
+
+    public FilmDTO addReview(long filmId, CreateReviewRequest review) {
+        if (reviews == null) {
+            return reviewService.addReview(filmId, review);
+        }
+        // The current user is resolved here, as it depends on the request
+        reviews.submit(new ReviewRequest(filmId, userComponent.getCurrentUserId(), review));
+        return filmService.findOne(filmId).orElseThrow(() -> new FilmNotFoundException(filmId));
+    }
+
+    private List<FilmDTO> writeFilms(List<CreateFilmRequest> requests) {
+        List<FilmDTO> saved = new ArrayList<>(requests.size());
+        for (CreateFilmRequest request : requests) {
+            Film film = filmMapper.toDomain(request);
+            // Persisted as new, so that the inserts are batched without a SELECT each
+            film.setId(null);
+            entityManager.persist(film);
+            eventPublisher.publishEvent(new FilmSavedEvent(film.getId(), true));
+            saved.add(filmMapper.toDTO(film));
+        }
+        return saved;
+    }
+
+    private List<Long> writeReviews(List<ReviewRequest> requests) {
+        Set<Long> missing = new HashSet<>();
+        for (ReviewRequest request : requests) {
+            missing.add(request.filmId());
+        }
+        missing.removeAll(filmRepository.findExistingIds(missing));
+        if (!missing.isEmpty()) {
+            throw new FilmNotFoundException(missing.iterator().next());
+        }
+
+        List<Long> ids = new ArrayList<>(requests.size());
+        // Reviews and score of each film, so that its counters are updated once
+        Map<Long, long[]> counters = new LinkedHashMap<>();
+        for (ReviewRequest request : requests) {
+            Review review = reviewMapper.toDomain(request.review());
+            review.setId(null);
+            review.setFilm(entityManager.getReference(Film.class, request.filmId()));
+            review.setUser(entityManager.getReference(User.class, request.userId()));
+            entityManager.persist(review);
+            ids.add(review.getId());
+
+            long[] filmCounters = counters.computeIfAbsent(request.filmId(), id -> new long[2]);
+            filmCounters[0]++;
+            filmCounters[1] += review.getScore();
+            eventPublisher.publishEvent(new ReviewChangedEvent(request.filmId(), review.getId(), true));
+        }
+        counters.forEach((filmId, filmCounters) -> filmRepository.addReviews(filmId, filmCounters[0], filmCounters[1]));
+        return ids;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (films != null) {
+            films.close();
+            reviews.close();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package es.codeurjc.web.nitflex.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import es.codeurjc.web.nitflex.dto.film.PosterDTO;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.service.events.PosterUploadedEvent;
+import es.codeurjc.web.nitflex.service.events.PostersReleasedEvent;
+import es.codeurjc.web.nitflex.service.storage.PosterStorage;
+import es.codeurjc.web.nitflex.utils.ImageUtils;
+import es.codeurjc.web.nitflex.utils.PosterSize;
+
+/**
+ * Generates the scaled variants of the posters out of the request threads: after each
+ * upload, and for the films stored before the variants existed when the application starts.
+ */
+@Service
+public class PosterVariantService {
+
+    private static final Logger log = LoggerFactory.getLogger(PosterVariantService.class);
+
+    private static final int BACKFILL_BATCH_SIZE = 50;
+
+    private FilmRepository filmRepository;
+    private FilmService filmService;
+    private ImageUtils imageUtils;
+    private PosterStorage posterStorage;
+    private ApplicationEventPublisher eventPublisher;
+
+    public PosterVariantService(FilmRepository filmRepository, FilmService filmService, ImageUtils imageUtils,
+            PosterStorage posterStorage, ApplicationEventPublisher eventPublisher) {
+        this.filmRepository = filmRepository;
+        this.filmService = filmService;
+        this.imageUtils = imageUtils;
+        this.posterStorage = posterStorage;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPosterUploaded(PosterUploadedEvent event) {
+        generateVariants(event.filmId(), event.posterHash(), event.image());
+    }
+
+    /**
+     * Generates the missing variants of every stored poster
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long after = 0;
+        int generated = 0;
+        List<Long> ids;
+        do {
+            ids = filmRepository.findIdsWithoutPosterVariants(after, Limit.of(BACKFILL_BATCH_SIZE));
+            for (long id : ids) {
+                Optional<PosterDTO> poster = filmService.getPoster(id);
+                Optional<byte[]> image = poster.flatMap(p -> filmService.getPosterImage(p, PosterSize.FULL))
+                        .map(this::readImage);
+                if (image.isPresent() && generateVariants(id, poster.get().hash(), image.get())) {
+                    generated++;
+                }
+                after = id;
+            }
+        } while (ids.size() == BACKFILL_BATCH_SIZE);
+
+        if (generated > 0) {
+            log.info("Generated the poster variants of {} films", generated);
+        }
+    }
+
+    /**
+     * Decodes the poster once and stores all its scaled variants. If the poster of the
+     * film has been replaced in the meantime, the stored variants are released.
+     * @return whether the variants were stored
+     */
+    boolean generateVariants(long filmId, String posterHash, byte[] image) {
+        Optional<BufferedImage> decoded = imageUtils.decode(image);
+        if (decoded.isEmpty()) {
+            log.debug("The poster of film {} cannot be decoded, only the original will be served", filmId);
+            return false;
+        }
+        byte[] thumb = imageUtils.scaleToJpeg(decoded.get(), PosterSize.THUMB.getWidth());
+        byte[] card = imageUtils.scaleToJpeg(decoded.get(), PosterSize.CARD.getWidth());
+        String thumbHash = posterStorage.store(thumb);
+        String cardHash = posterStorage.store(card);
+        if (filmRepository.updatePosterVariants(filmId, posterHash, thumbHash, cardHash) == 0) {
+            eventPublisher.publishEvent(new PostersReleasedEvent(Set.of(thumbHash, cardHash)));
+            return false;
+        }
+        return true;
+    }
+
+    private byte[] readImage(Resource image) {
+        try {
+            return image.getContentAsByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading poster", e);
+        }
+    }
+}
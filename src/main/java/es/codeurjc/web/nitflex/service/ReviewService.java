@@ -1,36 +1,110 @@
 package es.codeurjc.web.nitflex.service;
 
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import es.codeurjc.web.nitflex.dto.CursorPage;
 import es.codeurjc.web.nitflex.dto.film.FilmDTO;
-import es.codeurjc.web.nitflex.dto.film.FilmMapper;
 import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.dto.review.FilmReviewRow;
 import es.codeurjc.web.nitflex.dto.review.ReviewMapper;
+import es.codeurjc.web.nitflex.dto.review.ReviewSimpleDTO;
 import es.codeurjc.web.nitflex.model.Film;
 import es.codeurjc.web.nitflex.model.Review;
 import es.codeurjc.web.nitflex.repository.FilmRepository;
 import es.codeurjc.web.nitflex.repository.ReviewRepository;
+import es.codeurjc.web.nitflex.service.events.ReviewChangedEvent;
 import es.codeurjc.web.nitflex.service.exceptions.FilmNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 
 @Service
+@Timed("nitflex.service")
 public class ReviewService {
 
+    public static final int DEFAULT_PAGE_SIZE = 10;
+
+    public static final int MAX_PAGE_SIZE = 100;
+
     private FilmRepository filmRepository;
     private UserComponent userComponent;
     private ReviewRepository reviewRepository;
-    private FilmMapper filmMapper;
+    private FilmDTOAssembler filmDTOAssembler;
     private ReviewMapper reviewMapper;
+    private ApplicationEventPublisher eventPublisher;
 
     public ReviewService(FilmRepository filmRepository, UserComponent userComponent,
-            ReviewRepository reviewRepository, FilmMapper filmMapper, ReviewMapper reviewMapper) {
+            ReviewRepository reviewRepository, FilmDTOAssembler filmDTOAssembler, ReviewMapper reviewMapper,
+            ApplicationEventPublisher eventPublisher) {
         this.filmRepository = filmRepository;
         this.userComponent = userComponent;
         this.reviewRepository = reviewRepository;
-        this.filmMapper = filmMapper;
+        this.filmDTOAssembler = filmDTOAssembler;
         this.reviewMapper = reviewMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Returns a page of the reviews of a film, from newest to oldest. The cursor is
+     * 'createdAtMillis_id' of the last review of the previous page, see {@link #cursorOf}
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param limit the page size, or null for the default one
+     */
+    public CursorPage<ReviewSimpleDTO> findPage(long filmId, String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        Limit rows = Limit.of(pageSize + 1);
+        List<FilmReviewRow> reviews;
+        if (cursor == null) {
+            reviews = reviewRepository.findNewestRowsByFilmId(filmId, rows);
+        } else {
+            String[] parts = cursor.split("_");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            reviews = reviewRepository.findRowsByFilmIdBefore(filmId, new Date(parseLong(parts[0], cursor)),
+                    parseLong(parts[1], cursor), rows);
+        }
+        // An empty page may also mean that there is no such film
+        if (reviews.isEmpty() && !filmRepository.existsById(filmId)) {
+            throw new FilmNotFoundException(filmId);
+        }
+        return CursorPage.of(reviews.stream().map(FilmDTOAssembler::toReviewDTO).toList(), pageSize,
+                ReviewService::cursorOf);
+    }
+
+    /**
+     * Returns the cursor of the page of reviews that follows the given one
+     */
+    public static String cursorOf(ReviewSimpleDTO review) {
+        return review.created_at().getTime() + "_" + review.id();
+    }
+
+    private long parseLong(String value, String cursor) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
     }
 
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be greater than 0");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Adds the review and its score to the counters of the film in the same transaction
+     */
     @Transactional
     public FilmDTO addReview(long filmId, CreateReviewRequest reviewDto) {
         Film film = filmRepository.findById(filmId)
@@ -39,14 +113,25 @@ public class ReviewService {
         review.setFilm(film);
         review.setUser(userComponent.getUser());
         reviewRepository.save(review);
-        FilmDTO response = filmMapper.toDTO(film);
-        response.reviews().add(reviewMapper.toSimpleDTO(review));
-        return response;
+        filmRepository.addReviews(filmId, 1, review.getScore());
+        eventPublisher.publishEvent(new ReviewChangedEvent(filmId, review.getId(), true));
+        return filmDTOAssembler.toDTO(filmRepository.findSimpleById(filmId)
+                .orElseThrow(() -> new FilmNotFoundException(filmId)));
     }
 
+    /**
+     * Deletes the review, if it exists, and removes it from the counters of its film
+     */
+    @Transactional
     public FilmDTO deleteReview(long filmId, long reviewId) {
-        reviewRepository.deleteById(reviewId);
-        return filmMapper.toDTO(filmRepository.findById(filmId)
+        Optional<Review> review = reviewRepository.findById(reviewId);
+        if (review.isPresent()) {
+            long reviewedFilmId = review.get().getFilm().getId();
+            reviewRepository.delete(review.get());
+            filmRepository.addReviews(reviewedFilmId, -1, -review.get().getScore());
+            eventPublisher.publishEvent(new ReviewChangedEvent(reviewedFilmId, reviewId, false));
+        }
+        return filmDTOAssembler.toDTO(filmRepository.findSimpleById(filmId)
                 .orElseThrow(() -> new IllegalArgumentException("Film not found")));
     }
 }
@@ -1,22 +1,58 @@
 package es.codeurjc.web.nitflex.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import es.codeurjc.web.nitflex.dto.user.UserSimpleDTO;
 import es.codeurjc.web.nitflex.model.User;
 import es.codeurjc.web.nitflex.repository.UserRepository;
 
 @Component
 public class UserComponent {
+
+    private static final String CURRENT_USER_ATTRIBUTE = UserComponent.class.getName() + ".CURRENT_USER";
     
     @Autowired
     UserRepository userRepository;
 
     /**
-     * Returns always the same user for simplicity before adding authentication
+     * Returns always the same user for simplicity before adding authentication: the
+     * one with the lowest id. It is read once per request and kept in the request
+     * attributes; outside of a request it is read on every call.
+     * @return the id, name and email of the current user
+     */
+    public UserSimpleDTO getCurrentUser() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) {
+            return findCurrentUser();
+        }
+        UserSimpleDTO user = (UserSimpleDTO) request.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (user == null) {
+            user = findCurrentUser();
+            request.setAttribute(CURRENT_USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    public long getCurrentUserId() {
+        return getCurrentUser().id();
+    }
+
+    /**
+     * Loads the current user entity, for the operations that modify it
      * @return User
      */
     public User getUser() {
-        return userRepository.findAll().get(0);
+        long id = getCurrentUserId();
+        return userRepository.findById(id).orElseThrow(() -> new IllegalStateException("User " + id + " not found"));
+    }
+
+    private UserSimpleDTO findCurrentUser() {
+        return userRepository.findSimpleUsers(Limit.of(1)).stream()
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("There are no users"));
     }
 }
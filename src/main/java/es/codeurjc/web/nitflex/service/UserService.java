@@ -3,12 +3,16 @@ package es.codeurjc.web.nitflex.service;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
 import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.events.UserDeletedEvent;
+import jakarta.transaction.Transactional;
 
 @Service
 public class UserService {
@@ -16,6 +20,12 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public User getUser(Long id) {
         return userRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
     }
@@ -24,8 +34,17 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    /**
+     * Deletes the user with their reviews and favorites, removing them from the
+     * counters of the films in the same transaction
+     */
+    @Transactional
     public void deleteUser(long userId) {
+        filmRepository.removeLikesOfUser(userId);
+        filmRepository.removeReviewsOfUser(userId);
+        filmRepository.updateAverageScoreOfUserReviews(userId);
         userRepository.deleteById(userId);
+        eventPublisher.publishEvent(new UserDeletedEvent(userId));
 	}
 
 }
@@ -0,0 +1,9 @@
+package es.codeurjc.web.nitflex.service.events;
+
+/**
+ * Published when a user adds a film to their favorites or removes it
+ * @param userId the user
+ * @param filmId the film
+ * @param added whether the film was added or removed
+ */
+public record FavoriteChangedEvent(long userId, long filmId, boolean added) {}
@@ -0,0 +1,7 @@
+package es.codeurjc.web.nitflex.service.events;
+
+/**
+ * Published when a film is deleted
+ * @param filmId the deleted film
+ */
+public record FilmDeletedEvent(long filmId) {}
@@ -0,0 +1,8 @@
+package es.codeurjc.web.nitflex.service.events;
+
+/**
+ * Published when a film is created or its details are updated
+ * @param filmId the film
+ * @param created whether the film is new
+ */
+public record FilmSavedEvent(long filmId, boolean created) {}
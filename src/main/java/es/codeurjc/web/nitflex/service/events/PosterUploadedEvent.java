@@ -0,0 +1,9 @@
+package es.codeurjc.web.nitflex.service.events;
+
+/**
+ * Published when a film gets a new poster
+ * @param filmId the film
+ * @param posterHash the content hash of the uploaded image
+ * @param image the uploaded image
+ */
+public record PosterUploadedEvent(long filmId, String posterHash, byte[] image) {}
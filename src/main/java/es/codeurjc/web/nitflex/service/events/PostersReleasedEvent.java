@@ -0,0 +1,9 @@
+package es.codeurjc.web.nitflex.service.events;
+
+import java.util.Set;
+
+/**
+ * Published when some films stop using poster images, which may now be unused
+ * @param hashes the content hashes of the images (full posters and variants)
+ */
+public record PostersReleasedEvent(Set<String> hashes) {}
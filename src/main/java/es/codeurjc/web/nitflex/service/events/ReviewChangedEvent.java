@@ -0,0 +1,9 @@
+package es.codeurjc.web.nitflex.service.events;
+
+/**
+ * Published when a review is added to a film or removed from it
+ * @param filmId the reviewed film
+ * @param reviewId the review
+ * @param added whether the review was added or removed
+ */
+public record ReviewChangedEvent(long filmId, long reviewId, boolean added) {}
@@ -0,0 +1,7 @@
+package es.codeurjc.web.nitflex.service.events;
+
+/**
+ * Published when a user is deleted, together with their reviews and favorites
+ * @param userId the deleted user
+ */
+public record UserDeletedEvent(long userId) {}
@@ -0,0 +1,42 @@
+package es.codeurjc.web.nitflex.service.importer;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Formats accepted by the film import, one film per line
+ */
+public enum FilmImportFormat {
+
+    /**
+     * title,synopsis,releaseYear,ageRating (as films.csv). Fields may be quoted.
+     */
+    CSV("text/csv"),
+
+    /**
+     * One JSON object per line, as {@link es.codeurjc.web.nitflex.dto.film.FilmImportRow}
+     */
+    NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    FilmImportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static FilmImportFormat fromContentType(MediaType mediaType) {
+        for (FilmImportFormat format : values()) {
+            if (MediaType.parseMediaType(format.contentType).isCompatibleWith(mediaType)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + mediaType);
+    }
+
+    public static FilmImportFormat fromFileName(String fileName) {
+        return fileName.toLowerCase().endsWith(".csv") ? CSV : NDJSON;
+    }
+}
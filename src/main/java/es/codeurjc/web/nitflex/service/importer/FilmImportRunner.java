@@ -0,0 +1,63 @@
+package es.codeurjc.web.nitflex.service.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import es.codeurjc.web.nitflex.dto.film.FilmImportReport;
+import es.codeurjc.web.nitflex.dto.film.FilmImportReport.RejectedRow;
+
+/**
+ * Command that imports the films of a file and then stops the application. The format
+ * is taken from the extension (.csv, anything else is read as NDJSON):
+ *
+ * <pre>
+ * java -jar nitflex.jar --import-films=films.csv
+ * </pre>
+ */
+@Component
+public class FilmImportRunner implements ApplicationRunner {
+
+    public static final String IMPORT_FILMS_OPTION = "import-films";
+
+    private static final Logger log = LoggerFactory.getLogger(FilmImportRunner.class);
+
+    private FilmImporter filmImporter;
+    private ConfigurableApplicationContext context;
+
+    public FilmImportRunner(FilmImporter filmImporter, ConfigurableApplicationContext context) {
+        this.filmImporter = filmImporter;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        List<String> files = args.getOptionValues(IMPORT_FILMS_OPTION);
+        if (files == null) {
+            return;
+        }
+        for (String file : files) {
+            try (Reader reader = Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+                FilmImportReport report = filmImporter.importFilms(reader, FilmImportFormat.fromFileName(file));
+                log.info("Imported {} films and {} reviews from {} in {} ms ({} rows/s), {} rows rejected",
+                        report.imported(), report.importedReviews(), file, report.elapsedMillis(),
+                        Math.round(report.rowsPerSecond()), report.rejected());
+                for (RejectedRow row : report.rejectedRows()) {
+                    log.warn("{}:{}: {}", file, row.line(), row.reason());
+                }
+            }
+        }
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -0,0 +1,78 @@
+package es.codeurjc.web.nitflex.service.importer;
+
+import java.util.List;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import es.codeurjc.web.nitflex.dto.film.FilmImportRow;
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.model.Film;
+import es.codeurjc.web.nitflex.model.Review;
+import es.codeurjc.web.nitflex.service.events.FilmSavedEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+
+/**
+ * Inserts the chunks of validated rows read by {@link FilmImporter}, each one in its
+ * own transaction. The films are persisted directly, so that no SELECT is issued
+ * before each INSERT, and the persistence context is flushed every
+ * {@link #FLUSH_SIZE} films so the inserts are sent in JDBC batches.
+ */
+@Service
+public class FilmImportService {
+
+    /**
+     * Same as hibernate.jdbc.batch_size
+     */
+    static final int FLUSH_SIZE = 50;
+
+    private EntityManager entityManager;
+    private ApplicationEventPublisher eventPublisher;
+
+    public FilmImportService(EntityManager entityManager, ApplicationEventPublisher eventPublisher) {
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * @return the number of reviews inserted with the films
+     */
+    @Transactional
+    public int insert(List<FilmImportRow> rows) {
+        int reviews = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Film film = toFilm(rows.get(i));
+            entityManager.persist(film);
+            reviews += film.getReviews().size();
+            eventPublisher.publishEvent(new FilmSavedEvent(film.getId(), true));
+            if ((i + 1) % FLUSH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        return reviews;
+    }
+
+    private Film toFilm(FilmImportRow row) {
+        Film film = new Film(row.title(), row.synopsis() == null ? "" : row.synopsis(), row.releaseYear(),
+                row.ageRating());
+        // The constructors set the id to 0, which persist would take for a detached entity
+        film.setId(null);
+        if (row.reviews() != null) {
+            long scoreSum = 0;
+            for (CreateReviewRequest imported : row.reviews()) {
+                Review review = new Review(imported.text(), imported.score());
+                review.setId(null);
+                review.setFilm(film);
+                film.getReviews().add(review);
+                scoreSum += imported.score();
+            }
+            // The counters are set before the insert, instead of being updated afterwards
+            film.setReviewCount(film.getReviews().size());
+            film.setScoreSum(scoreSum);
+            film.setAverageScore(film.getReviews().isEmpty() ? 0 : (double) scoreSum / film.getReviews().size());
+        }
+        return film;
+    }
+}
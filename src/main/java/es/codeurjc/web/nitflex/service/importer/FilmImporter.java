@@ -0,0 +1,220 @@
+package es.codeurjc.web.nitflex.service.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.codeurjc.web.nitflex.dto.film.FilmImportReport;
+import es.codeurjc.web.nitflex.dto.film.FilmImportReport.RejectedRow;
+import es.codeurjc.web.nitflex.dto.film.FilmImportRow;
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.utils.AgeRatingOptionsUtils.AgeRating;
+
+/**
+ * Bulk import of films from CSV or NDJSON. The input is read line by line and only one
+ * chunk of valid rows is kept in memory, so files of any size can be imported. Each
+ * chunk is inserted in its own transaction. Invalid rows are skipped and reported. If the
+ * insert of a chunk fails, its rows are inserted again one by one, so that only the rows
+ * that cannot be stored are rejected.
+ */
+@Component
+public class FilmImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(FilmImporter.class);
+
+    static final int CHUNK_SIZE = 500;
+
+    /**
+     * Length of the film.title column
+     */
+    static final int MAX_TITLE_LENGTH = 255;
+
+    /**
+     * Maximum number of rejected rows described in the report, the rest are only counted
+     */
+    static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private static final String CSV_HEADER = "title,synopsis,releaseYear,ageRating";
+
+    private FilmImportService filmImportService;
+    private ObjectMapper objectMapper;
+
+    public FilmImporter(FilmImportService filmImportService, ObjectMapper objectMapper) {
+        this.filmImportService = filmImportService;
+        this.objectMapper = objectMapper;
+    }
+
+    public FilmImportReport importFilms(Reader input, FilmImportFormat format) throws IOException {
+        long start = System.nanoTime();
+        long lineNumber = 0;
+        Progress progress = new Progress();
+        List<FilmImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Long> chunkLines = new ArrayList<>(CHUNK_SIZE);
+
+        BufferedReader reader = new BufferedReader(input);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && format == FilmImportFormat.CSV
+                    && line.strip().equalsIgnoreCase(CSV_HEADER))) {
+                continue;
+            }
+            try {
+                FilmImportRow row = format == FilmImportFormat.CSV ? parseCsv(line) : parseJson(line);
+                validate(row);
+                chunk.add(row);
+                chunkLines.add(lineNumber);
+            } catch (IllegalArgumentException e) {
+                progress.reject(lineNumber, e.getMessage());
+            }
+            if (chunk.size() == CHUNK_SIZE) {
+                insert(chunk, chunkLines, progress);
+                chunk.clear();
+                chunkLines.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insert(chunk, chunkLines, progress);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        double rowsPerSecond = elapsedNanos == 0 ? 0 : (progress.imported + progress.rejected) * 1e9 / elapsedNanos;
+        return new FilmImportReport(progress.imported, progress.importedReviews, progress.rejected,
+                progress.rejectedRows, elapsedNanos / 1_000_000, rowsPerSecond);
+    }
+
+    private void insert(List<FilmImportRow> chunk, List<Long> lines, Progress progress) {
+        try {
+            progress.importedReviews += filmImportService.insert(chunk);
+            progress.imported += chunk.size();
+            return;
+        } catch (RuntimeException e) {
+            log.debug("Import of a chunk of {} films failed, inserting them one by one", chunk.size(), e);
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                progress.importedReviews += filmImportService.insert(List.of(chunk.get(i)));
+                progress.imported++;
+            } catch (RuntimeException e) {
+                log.debug("Import of the film in line {} failed", lines.get(i), e);
+                progress.reject(lines.get(i), "The film cannot be stored");
+            }
+        }
+    }
+
+    private FilmImportRow parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, FilmImportRow.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private FilmImportRow parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 4) {
+            throw new IllegalArgumentException("Expected 4 fields but found " + fields.size());
+        }
+        int releaseYear;
+        try {
+            releaseYear = Integer.parseInt(fields.get(2).strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid release year: " + fields.get(2));
+        }
+        return new FilmImportRow(fields.get(0), fields.get(1), releaseYear, fields.get(3).strip(), null);
+    }
+
+    /**
+     * Splits a CSV line. A quoted field may contain commas and doubled quotes, but not
+     * line breaks.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Same rules as the forms and the entities: a title of at most 255 characters, texts
+     * of at most 50000 characters, one of the age ratings and reviews scored from 0 to 10
+     */
+    private void validate(FilmImportRow row) {
+        if (row.title() == null || row.title().isBlank()) {
+            throw new IllegalArgumentException("The title is empty");
+        }
+        if (row.title().length() > MAX_TITLE_LENGTH) {
+            throw new IllegalArgumentException("The title is too long");
+        }
+        if (row.synopsis() != null && row.synopsis().length() > 50000) {
+            throw new IllegalArgumentException("The synopsis is too long");
+        }
+        if (row.releaseYear() == null) {
+            throw new IllegalArgumentException("The release year is missing");
+        }
+        if (row.ageRating() != null && !row.ageRating().isBlank()) {
+            AgeRating.fromDescription(row.ageRating());
+        }
+        if (row.reviews() != null) {
+            for (CreateReviewRequest review : row.reviews()) {
+                if (review == null || review.text() == null || review.text().isBlank()) {
+                    throw new IllegalArgumentException("Review text field is mandatory");
+                }
+                if (review.text().length() > 50000) {
+                    throw new IllegalArgumentException("The review text is too long");
+                }
+                if (review.score() < 0 || review.score() > 10) {
+                    throw new IllegalArgumentException("Score must be between 0 and 10");
+                }
+            }
+        }
+    }
+
+    private static class Progress {
+
+        private long imported;
+        private long importedReviews;
+        private long rejected;
+        private final List<RejectedRow> rejectedRows = new ArrayList<>();
+
+        private void reject(long line, String reason) {
+            rejected++;
+            if (rejectedRows.size() < MAX_REPORTED_REJECTIONS) {
+                rejectedRows.add(new RejectedRow(line, reason));
+            }
+        }
+    }
+}
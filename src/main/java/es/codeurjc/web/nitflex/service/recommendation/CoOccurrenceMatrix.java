@@ -0,0 +1,243 @@
+package es.codeurjc.web.nitflex.service.recommendation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import es.codeurjc.web.nitflex.utils.LongIntHashMap;
+
+/**
+ * How many users have both films of each pair among their favorites. Each film has a
+ * sparse row with the films liked together with it, and the favorites of each user are
+ * kept too, so that adding or removing a favorite only updates the pairs of that user.
+ * Adding a favorite that is already there, or removing one that is not, changes nothing,
+ * so the same change can be applied twice.
+ *
+ * Related films are ranked by the cosine similarity of their likers: the users that
+ * liked both, divided by the geometric mean of the likes of each film, so that the most
+ * liked films are not related to everything.
+ *
+ * Queries share a read lock; changes take the write lock.
+ */
+public class CoOccurrenceMatrix {
+
+    private static final int BUILD_USERS_PER_TASK = 256;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Set<Long>> favorites;
+    private final Map<Long, LongIntHashMap> rows;
+    private final LongIntHashMap likes;
+
+    public CoOccurrenceMatrix() {
+        this(new HashMap<>(), new HashMap<>(), new LongIntHashMap());
+    }
+
+    private CoOccurrenceMatrix(Map<Long, Set<Long>> favorites, Map<Long, LongIntHashMap> rows, LongIntHashMap likes) {
+        this.favorites = favorites;
+        this.rows = rows;
+        this.likes = likes;
+    }
+
+    /**
+     * Builds the matrix from the favorites of every user. The users are split among
+     * fork-join tasks, each one counting the pairs of its users in its own rows, which
+     * are then added together.
+     */
+    public static CoOccurrenceMatrix build(Map<Long, Set<Long>> favoritesByUser, ForkJoinPool pool) {
+        List<Set<Long>> userFavorites = new ArrayList<>(favoritesByUser.values());
+        Counts counts = pool.invoke(new CountTask(userFavorites, 0, userFavorites.size()));
+        Map<Long, Set<Long>> favorites = new HashMap<>();
+        favoritesByUser.forEach((userId, films) -> favorites.put(userId, new HashSet<>(films)));
+        return new CoOccurrenceMatrix(favorites, counts.rows, counts.likes);
+    }
+
+    /**
+     * @return whether the film was not a favorite of the user yet
+     */
+    public boolean like(long userId, long filmId) {
+        lock.writeLock().lock();
+        try {
+            Set<Long> userFavorites = favorites.computeIfAbsent(userId, id -> new HashSet<>());
+            if (!userFavorites.add(filmId)) {
+                return false;
+            }
+            for (long other : userFavorites) {
+                if (other != filmId) {
+                    addPair(rows, filmId, other, 1);
+                }
+            }
+            likes.addTo(filmId, 1);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return whether the film was a favorite of the user
+     */
+    public boolean unlike(long userId, long filmId) {
+        lock.writeLock().lock();
+        try {
+            return removeFavorite(userId, filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(long userId) {
+        lock.writeLock().lock();
+        try {
+            Set<Long> userFavorites = favorites.get(userId);
+            if (userFavorites != null) {
+                for (long filmId : List.copyOf(userFavorites)) {
+                    removeFavorite(userId, filmId);
+                }
+                favorites.remove(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(long filmId) {
+        lock.writeLock().lock();
+        try {
+            LongIntHashMap row = rows.remove(filmId);
+            if (row != null) {
+                row.forEach((other, together) -> {
+                    LongIntHashMap otherRow = rows.get(other);
+                    otherRow.remove(filmId);
+                    if (otherRow.isEmpty()) {
+                        rows.remove(other);
+                    }
+                });
+            }
+            likes.remove(filmId);
+            for (Set<Long> userFavorites : favorites.values()) {
+                userFavorites.remove(filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return at most 'limit' films liked together with the given one, from the most to
+     *         the least similar
+     */
+    public List<RelatedFilm> related(long filmId, int limit) {
+        lock.readLock().lock();
+        try {
+            LongIntHashMap row = rows.get(filmId);
+            if (row == null) {
+                return List.of();
+            }
+            int filmLikes = likes.get(filmId);
+            Comparator<RelatedFilm> leastSimilarFirst = Comparator.comparingDouble(RelatedFilm::similarity)
+                    .thenComparingInt(RelatedFilm::likedTogether)
+                    .thenComparing(Comparator.comparingLong(RelatedFilm::filmId).reversed());
+            PriorityQueue<RelatedFilm> top = new PriorityQueue<>(leastSimilarFirst);
+            row.forEach((other, together) -> {
+                top.add(new RelatedFilm(other, together, together / Math.sqrt((double) filmLikes * likes.get(other))));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            });
+            List<RelatedFilm> related = new ArrayList<>(top);
+            related.sort(leastSimilarFirst.reversed());
+            return related;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean removeFavorite(long userId, long filmId) {
+        Set<Long> userFavorites = favorites.get(userId);
+        if (userFavorites == null || !userFavorites.remove(filmId)) {
+            return false;
+        }
+        for (long other : userFavorites) {
+            addPair(rows, filmId, other, -1);
+        }
+        likes.addTo(filmId, -1);
+        return true;
+    }
+
+    private static void addPair(Map<Long, LongIntHashMap> rows, long filmId, long other, int delta) {
+        addToRow(rows, filmId, other, delta);
+        addToRow(rows, other, filmId, delta);
+    }
+
+    private static void addToRow(Map<Long, LongIntHashMap> rows, long filmId, long other, int delta) {
+        LongIntHashMap row = rows.computeIfAbsent(filmId, id -> new LongIntHashMap());
+        row.addTo(other, delta);
+        if (row.isEmpty()) {
+            rows.remove(filmId);
+        }
+    }
+
+    private record Counts(Map<Long, LongIntHashMap> rows, LongIntHashMap likes) {}
+
+    private static class CountTask extends RecursiveTask<Counts> {
+
+        private final List<Set<Long>> userFavorites;
+        private final int from;
+        private final int to;
+
+        CountTask(List<Set<Long>> userFavorites, int from, int to) {
+            this.userFavorites = userFavorites;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (to - from > BUILD_USERS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                CountTask right = new CountTask(userFavorites, middle, to);
+                right.fork();
+                Counts left = new CountTask(userFavorites, from, middle).compute();
+                return merge(left, right.join());
+            }
+            Counts counts = new Counts(new HashMap<>(), new LongIntHashMap());
+            for (int i = from; i < to; i++) {
+                Long[] films = userFavorites.get(i).toArray(Long[]::new);
+                for (int a = 0; a < films.length; a++) {
+                    counts.likes.addTo(films[a], 1);
+                    for (int b = a + 1; b < films.length; b++) {
+                        addPair(counts.rows, films[a], films[b], 1);
+                    }
+                }
+            }
+            return counts;
+        }
+
+        /**
+         * Adds the smaller counts to the larger ones
+         */
+        private static Counts merge(Counts a, Counts b) {
+            Counts larger = a.rows.size() >= b.rows.size() ? a : b;
+            Counts smaller = larger == a ? b : a;
+            smaller.rows.forEach((filmId, row) -> row.forEach((other, together) -> addToRow(larger.rows, filmId, other, together)));
+            smaller.likes.forEach(larger.likes::addTo);
+            return larger;
+        }
+    }
+
+    /**
+     * @param likedTogether the users that liked both films
+     * @param similarity the cosine similarity of the likers of both films, from 0 to 1
+     */
+    public record RelatedFilm(long filmId, int likedTogether, double similarity) {}
+}
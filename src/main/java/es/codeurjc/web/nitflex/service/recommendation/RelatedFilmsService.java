@@ -0,0 +1,171 @@
+package es.codeurjc.web.nitflex.service.recommendation;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
+import es.codeurjc.web.nitflex.dto.user.FavoriteRow;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.events.FavoriteChangedEvent;
+import es.codeurjc.web.nitflex.service.events.FilmDeletedEvent;
+import es.codeurjc.web.nitflex.service.events.UserDeletedEvent;
+import es.codeurjc.web.nitflex.service.exceptions.FilmNotFoundException;
+
+/**
+ * "Users who liked this also liked": films related by the users that have both among
+ * their favorites, answered from the {@link CoOccurrenceMatrix}. The matrix is built when
+ * the application starts and then follows each committed favorite change, user deletion
+ * and film deletion. Changes made while it is being built are applied again once it is
+ * ready, as the build may have read the favorites before them. The changes are applied
+ * under a lock that is also held while the new matrix replaces the old one, so they
+ * are applied to it in the order in which they were made.
+ */
+@Service
+public class RelatedFilmsService {
+
+    private static final Logger log = LoggerFactory.getLogger(RelatedFilmsService.class);
+
+    public static final int DEFAULT_LIMIT = 10;
+
+    public static final int MAX_LIMIT = 50;
+
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    private FilmRepository filmRepository;
+
+    private UserRepository userRepository;
+
+    private volatile CoOccurrenceMatrix matrix = new CoOccurrenceMatrix();
+
+    private final Object changes = new Object();
+
+    private boolean rebuilding;
+
+    private final Queue<Consumer<CoOccurrenceMatrix>> changedWhileRebuilding = new ArrayDeque<>();
+
+    public RelatedFilmsService(FilmRepository filmRepository, UserRepository userRepository) {
+        this.filmRepository = filmRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Returns the summaries of the films most often liked together with the given one
+     * @param limit the maximum number of films, or null for the default one
+     */
+    public List<FilmSummaryDTO> findRelated(long filmId, Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("The limit must be greater than 0");
+        }
+        if (!filmRepository.existsById(filmId)) {
+            throw new FilmNotFoundException(filmId);
+        }
+        List<CoOccurrenceMatrix.RelatedFilm> related = matrix.related(filmId,
+                limit == null ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT));
+        if (related.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, FilmSummaryDTO> summaries = filmRepository
+                .findSummariesByIds(related.stream().map(CoOccurrenceMatrix.RelatedFilm::filmId).toList()).stream()
+                .collect(Collectors.toMap(FilmSummaryDTO::id, Function.identity()));
+        return related.stream().map(film -> summaries.get(film.filmId())).filter(Objects::nonNull).toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        if (event.added()) {
+            apply(matrix -> matrix.like(event.userId(), event.filmId()));
+        } else {
+            apply(matrix -> matrix.unlike(event.userId(), event.filmId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        apply(matrix -> matrix.removeUser(event.userId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        apply(matrix -> matrix.removeFilm(event.filmId()));
+    }
+
+    /**
+     * Applies the change to the current matrix. Every change leaves the matrix in the
+     * same state when applied twice, so it can be applied again after a rebuild.
+     */
+    private void apply(Consumer<CoOccurrenceMatrix> change) {
+        synchronized (changes) {
+            if (rebuilding) {
+                changedWhileRebuilding.add(change);
+            }
+            change.accept(matrix);
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Builds a new matrix with the favorites of all the users and replaces the current one
+     * @return the number of users with favorites
+     */
+    public synchronized int rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (changes) {
+            rebuilding = true;
+        }
+        Map<Long, Set<Long>> favorites = new HashMap<>();
+        try {
+            long afterUser = 0;
+            long afterFilm = 0;
+            List<FavoriteRow> batch;
+            do {
+                batch = userRepository.findFavoritesAfter(afterUser, afterFilm, Limit.of(REBUILD_BATCH_SIZE));
+                for (FavoriteRow row : batch) {
+                    favorites.computeIfAbsent(row.userId(), id -> new TreeSet<>()).add(row.filmId());
+                    afterUser = row.userId();
+                    afterFilm = row.filmId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+            CoOccurrenceMatrix built = CoOccurrenceMatrix.build(favorites, ForkJoinPool.commonPool());
+            synchronized (changes) {
+                Consumer<CoOccurrenceMatrix> change;
+                while ((change = changedWhileRebuilding.poll()) != null) {
+                    change.accept(built);
+                }
+                matrix = built;
+            }
+        } finally {
+            synchronized (changes) {
+                rebuilding = false;
+                changedWhileRebuilding.clear();
+            }
+        }
+
+        log.info("Built the related films of {} users in {} ms", favorites.size(), System.currentTimeMillis() - start);
+        return favorites.size();
+    }
+}
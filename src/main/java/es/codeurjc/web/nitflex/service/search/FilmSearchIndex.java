@@ -0,0 +1,398 @@
+package es.codeurjc.web.nitflex.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index of the titles and synopses of the films, ranked with BM25. Title terms
+ * count {@link #TITLE_WEIGHT} times, so that a title match outranks a synopsis one.
+ *
+ * Each film is a document numbered in insertion order, so the postings of a term (the
+ * documents that contain it and how many times) are appended to primitive arrays and stay
+ * sorted. A changed film is removed and added again with a new number; the postings of
+ * removed documents are skipped, and dropped when they outnumber the live ones, whether
+ * the films were removed or changed.
+ *
+ * Query terms missing from the index are matched against the terms at one edit (two for
+ * long terms), found through a trigram index of the term dictionary, with a lower weight.
+ *
+ * Searches share a read lock; changes take the write lock.
+ */
+public class FilmSearchIndex {
+
+    static final int TITLE_WEIGHT = 3;
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private static final int MAX_FUZZY_EXPANSIONS = 3;
+
+    private static final int MIN_REMOVED_TO_COMPACT = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final List<Postings> postings = new ArrayList<>();
+    private final Map<String, IntList> trigrams = new HashMap<>();
+
+    private final Map<Long, Integer> documents = new HashMap<>();
+    private long[] filmIds = new long[64];
+    private int[] lengths = new int[64];
+    // The term ids of each document, or null if it has been removed
+    private int[][] documentTerms = new int[64][];
+    private int documentCount;
+    private int removedCount;
+    private long liveLength;
+
+    /**
+     * Splits a film into its terms and their frequencies. It does not touch the index, so
+     * films can be analyzed in parallel and added afterwards.
+     */
+    public static AnalyzedFilm analyze(long filmId, String title, String synopsis) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        int length = 0;
+        for (String term : FilmTextAnalyzer.analyze(title)) {
+            frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+            length += TITLE_WEIGHT;
+        }
+        for (String term : FilmTextAnalyzer.analyze(synopsis)) {
+            frequencies.merge(term, 1, Integer::sum);
+            length++;
+        }
+        String[] filmTerms = frequencies.keySet().toArray(String[]::new);
+        int[] filmFrequencies = frequencies.values().stream().mapToInt(Integer::intValue).toArray();
+        return new AnalyzedFilm(filmId, filmTerms, filmFrequencies, length);
+    }
+
+    /**
+     * Adds the film to the index, replacing its previous version
+     */
+    public void put(AnalyzedFilm film) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(film.filmId());
+            compactIfMostlyRemoved();
+            int document = documentCount++;
+            ensureCapacity(documentCount);
+            int[] ids = new int[film.terms().length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = termId(film.terms()[i]);
+                postings.get(ids[i]).add(document, film.frequencies()[i]);
+            }
+            filmIds[document] = film.filmId();
+            lengths[document] = film.length();
+            documentTerms[document] = ids;
+            documents.put(film.filmId(), document);
+            liveLength += film.length();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long filmId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(filmId);
+            compactIfMostlyRemoved();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of documents, including the removed ones whose postings have not been dropped yet
+     */
+    public int documentCount() {
+        lock.readLock().lock();
+        try {
+            return documentCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the films that contain any of the terms of the query
+     * @return at most 'limit' films, from the highest to the lowest score
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> queryTerms = FilmTextAnalyzer.analyze(query).stream().distinct().toList();
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> termWeights = new HashMap<>();
+            for (String term : queryTerms) {
+                Integer termId = termIds.get(term);
+                if (termId != null && postings.get(termId).live > 0) {
+                    termWeights.merge(termId, 1.0, Math::max);
+                } else {
+                    similarTerms(term).forEach((similar, weight) -> termWeights.merge(similar, weight, Math::max));
+                }
+            }
+            return topHits(score(termWeights), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Integer, Double> score(Map<Integer, Double> termWeights) {
+        int liveCount = documents.size();
+        double averageLength = liveCount == 0 ? 1 : (double) liveLength / liveCount;
+        Map<Integer, Double> scores = new HashMap<>();
+        termWeights.forEach((termId, weight) -> {
+            Postings termPostings = postings.get(termId);
+            double idf = Math.log(1 + (liveCount - termPostings.live + 0.5) / (termPostings.live + 0.5));
+            for (int i = 0; i < termPostings.size; i++) {
+                int document = termPostings.documents[i];
+                if (documentTerms[document] == null) {
+                    continue;
+                }
+                int frequency = termPostings.frequencies[i];
+                double normalization = K1 * (1 - B + B * lengths[document] / averageLength);
+                double score = weight * idf * frequency * (K1 + 1) / (frequency + normalization);
+                scores.merge(document, score, Double::sum);
+            }
+        });
+        return scores;
+    }
+
+    private List<Hit> topHits(Map<Integer, Double> scores, int limit) {
+        Comparator<Hit> worstFirst = Comparator.comparingDouble(Hit::score)
+                .thenComparing(Comparator.comparingLong(Hit::filmId).reversed());
+        PriorityQueue<Hit> top = new PriorityQueue<>(worstFirst);
+        scores.forEach((document, score) -> {
+            top.add(new Hit(filmIds[document], score));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(worstFirst.reversed());
+        return hits;
+    }
+
+    /**
+     * Finds the terms of the index at a small edit distance of the given one. Each edit
+     * changes at most three of the trigrams of a term, which bounds the trigrams that a
+     * candidate must share before its distance is computed.
+     * @return the similar terms and their weights, lower the more edits they are away
+     */
+    private Map<Integer, Double> similarTerms(String term) {
+        Map<Integer, Double> similar = new HashMap<>();
+        if (term.length() < MIN_FUZZY_LENGTH) {
+            return similar;
+        }
+        int maxEdits = term.length() <= 6 ? 1 : 2;
+        List<String> termTrigrams = trigramsOf(term);
+        Map<Integer, Integer> sharedTrigrams = new HashMap<>();
+        for (String trigram : termTrigrams) {
+            IntList candidates = trigrams.get(trigram);
+            if (candidates != null) {
+                for (int i = 0; i < candidates.size; i++) {
+                    sharedTrigrams.merge(candidates.values[i], 1, Integer::sum);
+                }
+            }
+        }
+
+        record Candidate(int termId, int edits, int live) {}
+        List<Candidate> candidates = new ArrayList<>();
+        sharedTrigrams.forEach((candidate, shared) -> {
+            String candidateTerm = terms.get(candidate);
+            if (shared >= termTrigrams.size() - 3 * maxEdits
+                    && Math.abs(candidateTerm.length() - term.length()) <= maxEdits
+                    && postings.get(candidate).live > 0) {
+                int edits = editDistance(term, candidateTerm, maxEdits);
+                if (edits <= maxEdits) {
+                    candidates.add(new Candidate(candidate, edits, postings.get(candidate).live));
+                }
+            }
+        });
+        candidates.stream()
+                .sorted(Comparator.comparingInt(Candidate::edits).thenComparing(Comparator.comparingInt(Candidate::live).reversed()))
+                .limit(MAX_FUZZY_EXPANSIONS)
+                .forEach(candidate -> similar.put(candidate.termId(), 1.0 / (1 + candidate.edits())));
+        return similar;
+    }
+
+    /**
+     * Levenshtein distance of both terms, or maxEdits + 1 if it is greater than maxEdits
+     */
+    static int editDistance(String a, String b, int maxEdits) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], maxEdits + 1);
+    }
+
+    private static List<String> trigramsOf(String term) {
+        String padded = "$" + term + "$";
+        List<String> result = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private int termId(String term) {
+        Integer termId = termIds.get(term);
+        if (termId != null) {
+            return termId;
+        }
+        int newId = terms.size();
+        termIds.put(term, newId);
+        terms.add(term);
+        postings.add(new Postings());
+        for (String trigram : trigramsOf(term)) {
+            trigrams.computeIfAbsent(trigram, key -> new IntList()).add(newId);
+        }
+        return newId;
+    }
+
+    private void removeDocument(long filmId) {
+        Integer document = documents.remove(filmId);
+        if (document == null) {
+            return;
+        }
+        for (int termId : documentTerms[document]) {
+            postings.get(termId).live--;
+        }
+        documentTerms[document] = null;
+        liveLength -= lengths[document];
+        removedCount++;
+    }
+
+    private void compactIfMostlyRemoved() {
+        if (removedCount > MIN_REMOVED_TO_COMPACT && removedCount > documents.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Renumbers the live documents in the same order and drops the postings of the removed ones
+     */
+    private void compact() {
+        int[] renumbered = new int[documentCount];
+        int live = 0;
+        for (int document = 0; document < documentCount; document++) {
+            if (documentTerms[document] == null) {
+                renumbered[document] = -1;
+                continue;
+            }
+            renumbered[document] = live;
+            filmIds[live] = filmIds[document];
+            lengths[live] = lengths[document];
+            documentTerms[live] = documentTerms[document];
+            documents.put(filmIds[live], live);
+            live++;
+        }
+        Arrays.fill(documentTerms, live, documentCount, null);
+        for (Postings termPostings : postings) {
+            termPostings.renumber(renumbered);
+        }
+        documentCount = live;
+        removedCount = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > filmIds.length) {
+            int newCapacity = Math.max(capacity, filmIds.length * 2);
+            filmIds = Arrays.copyOf(filmIds, newCapacity);
+            lengths = Arrays.copyOf(lengths, newCapacity);
+            documentTerms = Arrays.copyOf(documentTerms, newCapacity);
+        }
+    }
+
+    /**
+     * The documents that contain a term, in increasing order, and the frequency of the
+     * term in each one. 'live' counts those that have not been removed.
+     */
+    private static class Postings {
+
+        private int[] documents = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+        private int live;
+
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+
+        void renumber(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int document = renumbered[documents[i]];
+                if (document >= 0) {
+                    documents[kept] = document;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+    }
+
+    private static class IntList {
+
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * A film split into its distinct terms, with the frequency of each one and the total
+     * number of terms (title terms counted {@link FilmSearchIndex#TITLE_WEIGHT} times)
+     */
+    public record AnalyzedFilm(long filmId, String[] terms, int[] frequencies, int length) {}
+
+    public record Hit(long filmId, double score) {}
+}
@@ -0,0 +1,139 @@
+package es.codeurjc.web.nitflex.service.search;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.service.events.FilmDeletedEvent;
+import es.codeurjc.web.nitflex.service.events.FilmSavedEvent;
+
+/**
+ * Full-text search of the films over the {@link FilmSearchIndex}. The index is built when
+ * the application starts, tokenizing each batch of films in parallel, and then updated
+ * once each film is saved or deleted. Films changed while the index is being rebuilt are
+ * indexed again when it is ready, as the rebuild may have read them before the change.
+ */
+@Service
+public class FilmSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(FilmSearchService.class);
+
+    public static final int DEFAULT_LIMIT = 20;
+
+    public static final int MAX_LIMIT = 100;
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private FilmRepository filmRepository;
+
+    private volatile FilmSearchIndex index = new FilmSearchIndex();
+
+    private volatile boolean rebuilding;
+
+    private final Set<Long> changedWhileRebuilding = ConcurrentHashMap.newKeySet();
+
+    public FilmSearchService(FilmRepository filmRepository) {
+        this.filmRepository = filmRepository;
+    }
+
+    /**
+     * Returns the summaries of the films that best match the query
+     * @param limit the maximum number of films, or null for the default one
+     */
+    public List<FilmSummaryDTO> search(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("The query is empty");
+        }
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("The limit must be greater than 0");
+        }
+        List<FilmSearchIndex.Hit> hits = index.search(query, limit == null ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT));
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        // A film deleted after the search is left out
+        Map<Long, FilmSummaryDTO> summaries = filmRepository
+                .findSummariesByIds(hits.stream().map(FilmSearchIndex.Hit::filmId).toList()).stream()
+                .collect(Collectors.toMap(FilmSummaryDTO::id, Function.identity()));
+        return hits.stream().map(hit -> summaries.get(hit.filmId())).filter(Objects::nonNull).toList();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        refresh(event.filmId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        refresh(event.filmId());
+    }
+
+    /**
+     * Indexes the current version of the film, or removes it if it no longer exists
+     */
+    private void refresh(long filmId) {
+        if (rebuilding) {
+            changedWhileRebuilding.add(filmId);
+        }
+        filmRepository.findSimpleById(filmId).ifPresentOrElse(
+                film -> index.put(analyze(film)),
+                () -> index.remove(filmId));
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Builds a new index with all the films and replaces the current one
+     * @return the number of indexed films
+     */
+    public synchronized int rebuild() {
+        long start = System.currentTimeMillis();
+        FilmSearchIndex rebuilt = new FilmSearchIndex();
+        rebuilding = true;
+        try {
+            long after = 0;
+            List<FilmSimpleDTO> films;
+            do {
+                films = filmRepository.findSimpleAfter(after, Limit.of(REBUILD_BATCH_SIZE));
+                films.parallelStream().map(FilmSearchService::analyze).toList().forEach(rebuilt::put);
+                if (!films.isEmpty()) {
+                    after = films.get(films.size() - 1).id();
+                }
+            } while (films.size() == REBUILD_BATCH_SIZE);
+            index = rebuilt;
+        } finally {
+            rebuilding = false;
+        }
+        for (Long filmId : List.copyOf(changedWhileRebuilding)) {
+            changedWhileRebuilding.remove(filmId);
+            refresh(filmId);
+        }
+
+        log.info("Indexed {} films for search in {} ms", rebuilt.size(), System.currentTimeMillis() - start);
+        return rebuilt.size();
+    }
+
+    private static FilmSearchIndex.AnalyzedFilm analyze(FilmSimpleDTO film) {
+        return FilmSearchIndex.analyze(film.id(), film.title(), film.synopsis());
+    }
+}
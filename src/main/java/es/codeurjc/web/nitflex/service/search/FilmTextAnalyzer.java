@@ -0,0 +1,81 @@
+package es.codeurjc.web.nitflex.service.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the titles and synopses of the films, and the search queries, into terms. The
+ * catalog mixes Spanish and English, so terms are case- and accent-folded ('Canción' is
+ * 'cancion'), the most common words of both languages are dropped, and plurals are reduced
+ * to the singular with a couple of suffix rules that hold for both languages.
+ */
+public final class FilmTextAnalyzer {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            // Spanish, already folded
+            "el", "la", "los", "las", "un", "una", "unos", "unas", "de", "del", "al", "y", "o", "u", "e", "a",
+            "en", "con", "por", "para", "sin", "sobre", "que", "se", "su", "sus", "lo", "le", "les", "es", "son",
+            "como", "mas", "pero", "ya", "muy", "este", "esta", "estos", "estas", "ese", "esa", "eso", "entre",
+            // English
+            "the", "an", "and", "or", "of", "to", "in", "on", "at", "for", "with", "by", "from", "is", "are",
+            "was", "were", "be", "it", "its", "this", "that", "as", "his", "her", "their", "he", "she", "they",
+            "but", "not");
+
+    private FilmTextAnalyzer() {
+    }
+
+    /**
+     * @return the terms of the text in order, repeated as many times as they appear
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String token : NON_WORD.split(fold(text))) {
+            if (isIndexed(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Lower-cases the text and removes its accents
+     */
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isIndexed(String token) {
+        if (token.isEmpty() || STOP_WORDS.contains(token)) {
+            return false;
+        }
+        // Single letters carry no meaning, but single digits may ('Dune 2')
+        return token.length() > 1 || Character.isDigit(token.charAt(0));
+    }
+
+    /**
+     * Reduces plurals to the singular: 'canciones' and 'cancion', or 'films' and 'film',
+     * give the same term. Words that usually end in 's' in the singular are kept.
+     */
+    static String stem(String term) {
+        int length = term.length();
+        if (length > 5 && term.endsWith("ones")) {
+            return term.substring(0, length - 2);
+        }
+        if (length > 3 && term.endsWith("s") && !term.endsWith("ss") && !term.endsWith("us") && !term.endsWith("is")) {
+            return term.substring(0, length - 1);
+        }
+        return term;
+    }
+}
@@ -0,0 +1,315 @@
+package es.codeurjc.web.nitflex.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import es.codeurjc.web.nitflex.dto.film.FilmSuggestion;
+
+/**
+ * Prefix index of the film titles, ranked by like count. Each title is folded as in
+ * {@link FilmTextAnalyzer#fold} and indexed from the start of each of its words, so
+ * that "man" suggests "Spider-Man".
+ *
+ * The keys are kept in a sorted array, where the keys of a prefix are a range found by
+ * binary search. A segment tree over the array holds the maximum rank (like count, then
+ * lowest id) of each subrange, so the most liked films of a range are found by expanding
+ * only the subranges with the highest ranks, without visiting the whole range. Like counts are updated in
+ * place; added or renamed films are kept in a small pending list until the array is
+ * rebuilt, which happens once {@link #MAX_PENDING} films have changed.
+ *
+ * Suggestions share a read lock; changes take the write lock.
+ */
+public class TitleSuggestIndex {
+
+    static final int MAX_PENDING = 256;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    private String[] keys = new String[0];
+    private Entry[] keyEntries = new Entry[0];
+    // Leaves are at [leafCount, 2 * leafCount); a removed or empty leaf holds -1
+    private long[] maxRanks = { -1, -1 };
+    private int leafCount = 1;
+
+    private final List<Entry> pending = new ArrayList<>();
+    private int removedFromKeys;
+
+    /**
+     * Adds the film, or updates its title and like count
+     */
+    public void put(long filmId, String title, long likeCount) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            if (entry != null && Objects.equals(entry.title, title)) {
+                setLikes(entry, likeCount);
+                return;
+            }
+            removeEntry(filmId);
+            Entry added = new Entry(filmId, title, keysOf(title), likeCount);
+            entries.put(filmId, added);
+            pending.add(added);
+            if (pending.size() + removedFromKeys > MAX_PENDING) {
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or updates many films, rebuilding the sorted array once
+     */
+    public void putAll(Collection<FilmSuggestion> films) {
+        lock.writeLock().lock();
+        try {
+            for (FilmSuggestion film : films) {
+                removeEntry(film.id());
+                entries.put(film.id(), new Entry(film.id(), film.title(), keysOf(film.title()), film.likeCount()));
+            }
+            rebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a number of likes (negative to remove them) to the film, if it is indexed
+     */
+    public void addLikes(long filmId, long likes) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            if (entry != null) {
+                setLikes(entry, Math.max(0, entry.likeCount + likes));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long filmId) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return at most 'limit' films with a word of the title starting with the prefix,
+     *         from the most to the least liked
+     */
+    public List<FilmSuggestion> suggest(String prefix, int limit) {
+        String folded = FilmTextAnalyzer.fold(prefix).strip();
+        if (folded.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<Entry> found = new ArrayList<>(topOfRange(lowerBound(folded), lowerBound(folded + Character.MAX_VALUE), limit));
+            for (Entry entry : pending) {
+                if (entry.matches(folded) && !found.contains(entry)) {
+                    found.add(entry);
+                }
+            }
+            return found.stream()
+                    .sorted(Comparator.comparingLong((Entry entry) -> entry.likeCount).reversed()
+                            .thenComparingLong(entry -> entry.filmId))
+                    .limit(limit)
+                    .map(entry -> new FilmSuggestion(entry.filmId, entry.title, entry.likeCount))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the most liked films among the keys in [from, to). The range is split into the
+     * nodes of the segment tree that cover it, and the node with the highest rank is
+     * expanded until 'limit' different films have been reached at the leaves.
+     */
+    private List<Entry> topOfRange(int from, int to, int limit) {
+        List<Entry> top = new ArrayList<>();
+        if (from >= to) {
+            return top;
+        }
+        PriorityQueue<Integer> nodes = new PriorityQueue<>(Comparator.comparingLong((Integer node) -> maxRanks[node]).reversed());
+        for (int left = from + leafCount, right = to + leafCount; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                nodes.add(left++);
+            }
+            if ((right & 1) == 1) {
+                nodes.add(--right);
+            }
+        }
+        Set<Long> seen = new HashSet<>();
+        while (!nodes.isEmpty() && top.size() < limit) {
+            int node = nodes.poll();
+            if (maxRanks[node] < 0) {
+                break;
+            }
+            if (node >= leafCount) {
+                Entry entry = keyEntries[node - leafCount];
+                // A title may have several words with the same prefix
+                if (seen.add(entry.filmId)) {
+                    top.add(entry);
+                }
+            } else {
+                nodes.add(2 * node);
+                nodes.add(2 * node + 1);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * @return the position of the first key not less than the given one. Keys repeat
+     *         (several titles have the same word), so any equal key is not enough.
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void setLikes(Entry entry, long likeCount) {
+        entry.likeCount = likeCount;
+        for (int position : entry.positions) {
+            updateLeaf(position, rank(entry));
+        }
+    }
+
+    private void removeEntry(long filmId) {
+        Entry entry = entries.remove(filmId);
+        if (entry == null) {
+            return;
+        }
+        if (!pending.remove(entry)) {
+            for (int position : entry.positions) {
+                updateLeaf(position, -1);
+            }
+            removedFromKeys++;
+        }
+    }
+
+    private void updateLeaf(int position, long value) {
+        int node = position + leafCount;
+        maxRanks[node] = value;
+        for (node >>= 1; node > 0; node >>= 1) {
+            maxRanks[node] = Math.max(maxRanks[2 * node], maxRanks[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Builds the sorted array of keys with all the films, emptying the pending list
+     */
+    private void rebuild() {
+        record Key(String key, Entry entry) {}
+        List<Key> allKeys = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            for (String key : entry.keys) {
+                allKeys.add(new Key(key, entry));
+            }
+        }
+        allKeys.sort(Comparator.comparing(Key::key));
+
+        keys = new String[allKeys.size()];
+        keyEntries = new Entry[allKeys.size()];
+        leafCount = Integer.highestOneBit(Math.max(1, allKeys.size() * 2 - 1));
+        maxRanks = new long[2 * leafCount];
+        Arrays.fill(maxRanks, -1);
+        Map<Entry, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < allKeys.size(); i++) {
+            keys[i] = allKeys.get(i).key();
+            keyEntries[i] = allKeys.get(i).entry();
+            maxRanks[leafCount + i] = rank(keyEntries[i]);
+            positions.computeIfAbsent(keyEntries[i], entry -> new ArrayList<>()).add(i);
+        }
+        for (int node = leafCount - 1; node > 0; node--) {
+            maxRanks[node] = Math.max(maxRanks[2 * node], maxRanks[2 * node + 1]);
+        }
+        positions.forEach((entry, entryPositions) -> entry.positions = entryPositions.stream().mapToInt(Integer::intValue).toArray());
+        pending.clear();
+        removedFromKeys = 0;
+    }
+
+    /**
+     * The order of the suggestions as a single number: by like count, then by lowest id
+     */
+    private static long rank(Entry entry) {
+        return (entry.likeCount << 31) | (Integer.MAX_VALUE - Math.min(entry.filmId, Integer.MAX_VALUE));
+    }
+
+    /**
+     * The folded title from the start of each of its words
+     */
+    static String[] keysOf(String title) {
+        String folded = title == null ? "" : FilmTextAnalyzer.fold(title);
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < folded.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(folded.charAt(i - 1));
+            if (wordStart && Character.isLetterOrDigit(folded.charAt(i))) {
+                result.add(folded.substring(i));
+            }
+        }
+        return result.toArray(String[]::new);
+    }
+
+    private static class Entry {
+
+        private final long filmId;
+        private final String title;
+        private final String[] keys;
+        private long likeCount;
+        // Positions of the keys in the sorted array, empty while the film is pending
+        private int[] positions = new int[0];
+
+        Entry(long filmId, String title, String[] keys, long likeCount) {
+            this.filmId = filmId;
+            this.title = title;
+            this.keys = keys;
+            this.likeCount = likeCount;
+        }
+
+        boolean matches(String prefix) {
+            for (String key : keys) {
+                if (key.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package es.codeurjc.web.nitflex.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import es.codeurjc.web.nitflex.dto.film.FilmSuggestion;
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.service.events.FavoriteChangedEvent;
+import es.codeurjc.web.nitflex.service.events.FilmDeletedEvent;
+import es.codeurjc.web.nitflex.service.events.FilmSavedEvent;
+import es.codeurjc.web.nitflex.service.events.UserDeletedEvent;
+
+/**
+ * Title autocomplete over the {@link TitleSuggestIndex}, answered from memory. The index
+ * is loaded when the application starts and then follows the committed changes: saved
+ * and deleted films, and favorites added or removed. Deleting a user changes the like
+ * counts of many films at once, so the index is loaded again. As with the search index,
+ * films changed while it is being loaded are read again when it is ready.
+ */
+@Service
+public class TitleSuggestService {
+
+    private static final Logger log = LoggerFactory.getLogger(TitleSuggestService.class);
+
+    public static final int DEFAULT_LIMIT = 10;
+
+    public static final int MAX_LIMIT = 50;
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private FilmRepository filmRepository;
+
+    private volatile TitleSuggestIndex index = new TitleSuggestIndex();
+
+    private volatile boolean rebuilding;
+
+    private final Set<Long> changedWhileRebuilding = ConcurrentHashMap.newKeySet();
+
+    public TitleSuggestService(FilmRepository filmRepository) {
+        this.filmRepository = filmRepository;
+    }
+
+    /**
+     * Returns the most liked films with a word of the title starting with the prefix,
+     * ignoring case and accents
+     * @param limit the maximum number of films, or null for the default one
+     */
+    public List<FilmSuggestion> suggest(String prefix, Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("The limit must be greater than 0");
+        }
+        return index.suggest(prefix, limit == null ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmSaved(FilmSavedEvent event) {
+        refresh(event.filmId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        markChanged(event.filmId());
+        index.remove(event.filmId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        markChanged(event.filmId());
+        index.addLikes(event.filmId(), event.added() ? 1 : -1);
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        rebuild();
+    }
+
+    private void refresh(long filmId) {
+        markChanged(filmId);
+        List<FilmSummaryDTO> films = filmRepository.findSummariesByIds(List.of(filmId));
+        if (films.isEmpty()) {
+            index.remove(filmId);
+        } else {
+            index.put(filmId, films.get(0).title(), films.get(0).likeCount());
+        }
+    }
+
+    private void markChanged(long filmId) {
+        if (rebuilding) {
+            changedWhileRebuilding.add(filmId);
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Loads a new index with all the films and replaces the current one
+     * @return the number of indexed films
+     */
+    public synchronized int rebuild() {
+        long start = System.currentTimeMillis();
+        TitleSuggestIndex rebuilt = new TitleSuggestIndex();
+        rebuilding = true;
+        try {
+            List<FilmSuggestion> films = new ArrayList<>();
+            long after = 0;
+            List<FilmSummaryDTO> batch;
+            do {
+                batch = filmRepository.findSummariesAfter(after, Limit.of(REBUILD_BATCH_SIZE));
+                for (FilmSummaryDTO film : batch) {
+                    films.add(new FilmSuggestion(film.id(), film.title(), film.likeCount()));
+                    after = film.id();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+            rebuilt.putAll(films);
+            index = rebuilt;
+        } finally {
+            rebuilding = false;
+        }
+        for (Long filmId : List.copyOf(changedWhileRebuilding)) {
+            changedWhileRebuilding.remove(filmId);
+            refresh(filmId);
+        }
+
+        log.debug("Indexed {} film titles for suggestions in {} ms", rebuilt.size(), System.currentTimeMillis() - start);
+        return rebuilt.size();
+    }
+}
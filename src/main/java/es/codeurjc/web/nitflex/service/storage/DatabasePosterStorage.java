@@ -0,0 +1,68 @@
+package es.codeurjc.web.nitflex.service.storage;
+
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+
+import org.hibernate.engine.jdbc.BlobProxy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import es.codeurjc.web.nitflex.model.PosterImage;
+import es.codeurjc.web.nitflex.repository.PosterImageRepository;
+import es.codeurjc.web.nitflex.utils.ImageUtils;
+import jakarta.transaction.Transactional;
+
+/**
+ * Keeps the posters in the 'poster_image' table. Suitable for small setups where a
+ * single database file is preferred over a directory of images. The row of an image
+ * keeps the last time it was stored, and is only deleted in the same statement that
+ * checks it.
+ */
+@Component
+@ConditionalOnProperty(name = "nitflex.posters.storage", havingValue = "database", matchIfMissing = true)
+public class DatabasePosterStorage implements PosterStorage {
+
+    private PosterImageRepository posterImageRepository;
+    private ImageUtils imageUtils;
+
+    public DatabasePosterStorage(PosterImageRepository posterImageRepository, ImageUtils imageUtils) {
+        this.posterImageRepository = posterImageRepository;
+        this.imageUtils = imageUtils;
+    }
+
+    @Override
+    @Transactional
+    public String store(byte[] image) {
+        String hash = imageUtils.contentHash(image);
+        Date now = new Date();
+        if (posterImageRepository.updateStoredAt(hash, now) == 0) {
+            posterImageRepository.save(new PosterImage(hash, BlobProxy.generateProxy(image), now));
+        }
+        return hash;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Resource> load(String hash) {
+        return posterImageRepository.findById(hash).map(poster -> {
+            Blob data = poster.getData();
+            try {
+                return new ByteArrayResource(data.getBytes(1, (int) data.length()));
+            } catch (SQLException e) {
+                throw new RuntimeException("Error getting image from database", e);
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteIfStoredBefore(String hash, Instant time) {
+        return posterImageRepository.deleteStoredBefore(hash, Date.from(time)) > 0;
+    }
+
+}
@@ -0,0 +1,117 @@
+package es.codeurjc.web.nitflex.service.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import es.codeurjc.web.nitflex.utils.ImageUtils;
+
+/**
+ * Keeps the posters as files named after their hash, spread in subdirectories by the
+ * first two characters of the hash: 'ab/abcdef...'. Files are written to a temporary
+ * name and atomically renamed, so readers never see a partial image, and are never
+ * modified afterwards, so they can be sent straight from the page cache.
+ *
+ * The modification time of a file is the last time it was stored. Storing and deleting
+ * an image hold the same lock, so an image is never deleted after it has been found
+ * stored.
+ */
+@Component
+@ConditionalOnProperty(name = "nitflex.posters.storage", havingValue = "filesystem")
+public class FileSystemPosterStorage implements PosterStorage {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private Path directory;
+    private ImageUtils imageUtils;
+
+    public FileSystemPosterStorage(@Value("${nitflex.posters.directory}") Path directory, ImageUtils imageUtils)
+            throws IOException {
+        this.directory = Files.createDirectories(directory).toRealPath();
+        this.imageUtils = imageUtils;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public String store(byte[] image) {
+        String hash = imageUtils.contentHash(image);
+        Path file = pathOf(hash);
+        synchronized (lockOf(hash)) {
+            write(hash, file, image);
+        }
+        return hash;
+    }
+
+    private void write(String hash, Path file, byte[] image) {
+        try {
+            if (Files.exists(file)) {
+                Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+                return;
+            }
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), hash, ".tmp");
+            try {
+                Files.write(tmp, image);
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Stored concurrently with the same content
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error storing poster " + hash, e);
+        }
+    }
+
+    @Override
+    public Optional<Resource> load(String hash) {
+        Path file = pathOf(hash);
+        return Files.isRegularFile(file) ? Optional.of(new FileSystemResource(file)) : Optional.empty();
+    }
+
+    @Override
+    public boolean deleteIfStoredBefore(String hash, Instant time) {
+        Path file = pathOf(hash);
+        synchronized (lockOf(hash)) {
+            try {
+                if (!Files.exists(file) || !Files.getLastModifiedTime(file).toInstant().isBefore(time)) {
+                    return false;
+                }
+                return Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error deleting poster " + hash, e);
+            }
+        }
+    }
+
+    private Object lockOf(String hash) {
+        return locks[Integer.parseInt(hash.substring(0, 2), 16) % LOCK_STRIPES];
+    }
+
+    private Path pathOf(String hash) {
+        if (!HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Invalid poster hash: " + hash);
+        }
+        return directory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+}
@@ -0,0 +1,88 @@
+package es.codeurjc.web.nitflex.service.storage;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.service.events.PostersReleasedEvent;
+
+/**
+ * Deletes from the poster storage the images that no film uses anymore. As images are
+ * shared by every film with the same poster, an image is only deleted once the
+ * transaction that released it has committed and no other film references it.
+ *
+ * An upload of the same image that has not committed yet relies on the stored image
+ * without referencing it. Released images are therefore only deleted after
+ * 'nitflex.posters.orphan-grace-period', and only if they have not been stored again
+ * since they were released. Images released before a restart are not deleted.
+ */
+@Component
+public class OrphanPosterCleaner {
+
+    private static final Logger log = LoggerFactory.getLogger(OrphanPosterCleaner.class);
+
+    private FilmRepository filmRepository;
+    private PosterStorage posterStorage;
+
+    private final Duration gracePeriod;
+
+    private final Queue<Released> released = new ConcurrentLinkedQueue<>();
+
+    public OrphanPosterCleaner(FilmRepository filmRepository, PosterStorage posterStorage,
+            @Value("${nitflex.posters.orphan-grace-period}") Duration gracePeriod) {
+        this.filmRepository = filmRepository;
+        this.posterStorage = posterStorage;
+        this.gracePeriod = gracePeriod;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostersReleased(PostersReleasedEvent event) {
+        released.add(new Released(event.hashes(), System.currentTimeMillis()));
+    }
+
+    /**
+     * Deletes the images released at least a grace period ago that no film references
+     * @return the number of deleted images
+     */
+    @Scheduled(fixedDelayString = "${nitflex.posters.orphan-sweep-interval}",
+            initialDelayString = "${nitflex.posters.orphan-sweep-interval}")
+    public int deleteOrphans() {
+        long releasedBefore = System.currentTimeMillis() - gracePeriod.toMillis();
+        // The last time each image was released
+        Map<String, Long> orphans = new HashMap<>();
+        while (!released.isEmpty() && released.peek().releasedAt() <= releasedBefore) {
+            Released next = released.poll();
+            for (String hash : next.hashes()) {
+                orphans.merge(hash, next.releasedAt(), Math::max);
+            }
+        }
+        if (orphans.isEmpty()) {
+            return 0;
+        }
+        orphans.keySet().removeAll(filmRepository.findReferencedPosterHashes(orphans.keySet()));
+        int deleted = 0;
+        for (Map.Entry<String, Long> orphan : orphans.entrySet()) {
+            if (posterStorage.deleteIfStoredBefore(orphan.getKey(), Instant.ofEpochMilli(orphan.getValue()))) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            log.debug("Deleted {} unused poster images", deleted);
+        }
+        return deleted;
+    }
+
+    private record Released(Set<String> hashes, long releasedAt) {}
+}
@@ -0,0 +1,90 @@
+package es.codeurjc.web.nitflex.service.storage;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.PosterImageRepository;
+
+/**
+ * Command that moves every poster out of the database into the configured poster
+ * storage and then stops the application:
+ *
+ * <pre>
+ * java -jar nitflex.jar --nitflex.posters.storage=filesystem --migrate-posters
+ * </pre>
+ */
+@Component
+public class PosterMigrationRunner implements ApplicationRunner {
+
+    public static final String MIGRATE_POSTERS_OPTION = "migrate-posters";
+
+    private static final Logger log = LoggerFactory.getLogger(PosterMigrationRunner.class);
+
+    private static final int BATCH_SIZE = 50;
+
+    private FilmRepository filmRepository;
+    private PosterImageRepository posterImageRepository;
+    private PosterMigrationService posterMigrationService;
+    private ConfigurableApplicationContext context;
+
+    public PosterMigrationRunner(FilmRepository filmRepository, PosterImageRepository posterImageRepository,
+            PosterMigrationService posterMigrationService, ConfigurableApplicationContext context) {
+        this.filmRepository = filmRepository;
+        this.posterImageRepository = posterImageRepository;
+        this.posterMigrationService = posterMigrationService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(MIGRATE_POSTERS_OPTION)) {
+            return;
+        }
+        int legacy = migrateLegacyPosters();
+        int moved = moveDatabaseImages();
+        log.info("Poster migration finished: {} legacy posters and {} database images moved", legacy, moved);
+        System.exit(SpringApplication.exit(context));
+    }
+
+    public int migrateLegacyPosters() {
+        long after = 0;
+        int migrated = 0;
+        List<Long> ids;
+        do {
+            ids = filmRepository.findIdsWithLegacyPoster(after, Limit.of(BATCH_SIZE));
+            for (long id : ids) {
+                if (posterMigrationService.migrateLegacyPoster(id)) {
+                    migrated++;
+                }
+                after = id;
+            }
+        } while (ids.size() == BATCH_SIZE);
+        return migrated;
+    }
+
+    public int moveDatabaseImages() {
+        int moved = 0;
+        List<String> hashes;
+        do {
+            // Moved images are deleted from the table, so the first batch is always read
+            hashes = posterImageRepository.findHashes(Limit.of(BATCH_SIZE));
+            for (String hash : hashes) {
+                if (!posterMigrationService.moveDatabaseImage(hash)) {
+                    return moved;
+                }
+                moved++;
+            }
+        } while (hashes.size() == BATCH_SIZE);
+        return moved;
+    }
+
+}
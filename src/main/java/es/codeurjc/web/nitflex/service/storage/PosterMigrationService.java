@@ -0,0 +1,95 @@
+package es.codeurjc.web.nitflex.service.storage;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import es.codeurjc.web.nitflex.model.Film;
+import es.codeurjc.web.nitflex.model.PosterImage;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.PosterImageRepository;
+import es.codeurjc.web.nitflex.service.events.PostersReleasedEvent;
+import es.codeurjc.web.nitflex.utils.ImageUtils;
+import jakarta.transaction.Transactional;
+
+/**
+ * Moves poster images from where older versions kept them into the configured
+ * {@link PosterStorage}. Each image is moved in its own transaction, so an interrupted
+ * migration can simply be run again.
+ */
+@Service
+public class PosterMigrationService {
+
+    private FilmRepository filmRepository;
+    private PosterImageRepository posterImageRepository;
+    private PosterStorage posterStorage;
+    private ImageUtils imageUtils;
+    private ApplicationEventPublisher eventPublisher;
+
+    public PosterMigrationService(FilmRepository filmRepository, PosterImageRepository posterImageRepository,
+            PosterStorage posterStorage, ImageUtils imageUtils, ApplicationEventPublisher eventPublisher) {
+        this.filmRepository = filmRepository;
+        this.posterImageRepository = posterImageRepository;
+        this.posterStorage = posterStorage;
+        this.imageUtils = imageUtils;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Moves the poster stored in the legacy 'poster_file' column of the film to the
+     * poster storage. Its scaled variants will be generated again, and the images it
+     * used before are released.
+     * @return whether the film had a legacy poster
+     */
+    @Transactional
+    public boolean migrateLegacyPoster(long filmId) {
+        Optional<Film> op = filmRepository.findById(filmId);
+        if (op.isEmpty() || op.get().getPosterFile() == null) {
+            return false;
+        }
+        Film film = op.get();
+        Set<String> previousPosters = film.posterHashes();
+        byte[] bytes = imageUtils.blobToBytes(film.getPosterFile());
+        film.setPosterHash(posterStorage.store(bytes));
+        if (film.getPosterContentType() == null) {
+            film.setPosterContentType(imageUtils.detectContentType(bytes));
+        }
+        if (film.getPosterLastModified() == null) {
+            film.setPosterLastModified(new Date());
+        }
+        film.setPosterThumbHash(null);
+        film.setPosterCardHash(null);
+        film.setPosterFile(null);
+
+        Set<String> released = new HashSet<>(previousPosters);
+        released.removeAll(film.posterHashes());
+        if (!released.isEmpty()) {
+            eventPublisher.publishEvent(new PostersReleasedEvent(released));
+        }
+        return true;
+    }
+
+    /**
+     * Moves an image from the 'poster_image' table to the poster storage, when the
+     * storage is not the database itself
+     * @return whether the image was moved
+     */
+    @Transactional
+    public boolean moveDatabaseImage(String hash) {
+        if (posterStorage instanceof DatabasePosterStorage) {
+            return false;
+        }
+        Optional<PosterImage> image = posterImageRepository.findById(hash);
+        if (image.isEmpty()) {
+            return false;
+        }
+        posterStorage.store(imageUtils.blobToBytes(image.get().getData()));
+        posterImageRepository.delete(image.get());
+        return true;
+    }
+
+}
@@ -0,0 +1,33 @@
+package es.codeurjc.web.nitflex.service.storage;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Content-addressed storage of poster images. Images are identified by the SHA-256 of
+ * their content, so storing the same image twice keeps a single copy.
+ * The backend is selected with the 'nitflex.posters.storage' property.
+ */
+public interface PosterStorage {
+
+    /**
+     * Stores the image if it is not stored yet. Either way, the image is marked as
+     * stored now.
+     * @return the content hash that identifies the image
+     */
+    String store(byte[] image);
+
+    /**
+     * @return the image with the given hash, or empty if it is not stored
+     */
+    Optional<Resource> load(String hash);
+
+    /**
+     * Deletes the image, unless it has been stored again since the given time
+     * @return whether the image was deleted
+     */
+    boolean deleteIfStoredBefore(String hash, Instant time);
+
+}
@@ -0,0 +1,296 @@
+package es.codeurjc.web.nitflex.service.trending;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Activity score of each film that halves every half-life. Each event adds its weight to
+ * the score of the film, so the score at a time t is the sum of weight * 2^(-(t - ti) /
+ * halfLife) over the events of the film.
+ *
+ * Instead of the score, the natural logarithm of the score at the epoch is kept:
+ * log(sum of weight * e^(decay * ti)). It does not change as time passes, only when
+ * events are added, and two films compare the same at any time, so the ranking is
+ * kept without decaying every score. The logarithm cannot overflow as time grows.
+ *
+ * The scores are split among stripes, each one with its own lock. The films with the
+ * highest scores are kept in a min-heap of at most 'topSize' films; as scores only grow,
+ * a film only enters it when it gets an event, and only the removal of a film in it
+ * requires looking at all the scores.
+ */
+public class TrendingScores {
+
+    private static final int STRIPE_BITS = 6;
+
+    private static final Comparator<Ranked> LOWEST_FIRST = Comparator.comparingDouble(Ranked::logScore)
+            .thenComparing(Comparator.comparingLong(Ranked::filmId).reversed());
+
+    private final double decayPerMilli;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+
+    private final int topSize;
+    private final PriorityQueue<Ranked> top = new PriorityQueue<>(LOWEST_FIRST);
+    private final Map<Long, Ranked> inTop = new HashMap<>();
+    // The lowest score of the heap once it is full, read without taking its lock
+    private volatile double topThreshold = Double.NEGATIVE_INFINITY;
+
+    public TrendingScores(Duration halfLife, int topSize) {
+        if (halfLife.isNegative() || halfLife.isZero()) {
+            throw new IllegalArgumentException("The half-life must be positive");
+        }
+        this.decayPerMilli = Math.log(2) / halfLife.toMillis();
+        this.topSize = topSize;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Adds an event to the score of the film
+     * @param timeMillis when it happened, in milliseconds since the epoch
+     */
+    public void add(long filmId, double weight, long timeMillis) {
+        combine(filmId, Math.log(weight) + decayPerMilli * timeMillis, true);
+    }
+
+    /**
+     * Adds a score read from a checkpoint, which does not need to be written again
+     */
+    public void load(long filmId, double logScore) {
+        combine(filmId, logScore, false);
+    }
+
+    public void remove(long filmId) {
+        Stripe stripe = stripeOf(filmId);
+        stripe.lock.lock();
+        try {
+            if (stripe.scores.remove(filmId) == null) {
+                return;
+            }
+            removed.add(filmId);
+        } finally {
+            stripe.lock.unlock();
+        }
+        synchronized (top) {
+            Ranked ranked = inTop.remove(filmId);
+            if (ranked != null) {
+                top.remove(ranked);
+                refill();
+            }
+        }
+    }
+
+    /**
+     * @return the score of the film at the given time, 0 if it has none
+     */
+    public double scoreAt(long filmId, long timeMillis) {
+        Stripe stripe = stripeOf(filmId);
+        stripe.lock.lock();
+        try {
+            Score score = stripe.scores.get(filmId);
+            return score == null ? 0 : Math.exp(score.logScore - decayPerMilli * timeMillis);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * @return at most 'limit' (up to the size of the heap) films from the highest to the
+     *         lowest score
+     */
+    public List<Long> top(int limit) {
+        List<Ranked> ranked;
+        synchronized (top) {
+            ranked = new ArrayList<>(top);
+        }
+        ranked.sort(LOWEST_FIRST.reversed());
+        return ranked.stream().limit(limit).map(Ranked::filmId).toList();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.scores.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the scores changed since the last call, as logarithms, which are no longer
+     *         considered changed
+     */
+    public Map<Long, Double> drainChanged() {
+        Map<Long, Double> changed = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.scores.forEach((filmId, score) -> {
+                    if (score.changed) {
+                        changed.put(filmId, score.logScore);
+                        score.changed = false;
+                    }
+                });
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the films removed since the last call
+     */
+    public Set<Long> drainRemoved() {
+        Set<Long> drained = Set.copyOf(removed);
+        removed.removeAll(drained);
+        return drained;
+    }
+
+    /**
+     * Considers the films changed or removed again, after their checkpoint failed
+     */
+    public void restore(Set<Long> changed, Set<Long> removedFilms) {
+        for (long filmId : changed) {
+            Stripe stripe = stripeOf(filmId);
+            stripe.lock.lock();
+            try {
+                Score score = stripe.scores.get(filmId);
+                if (score != null) {
+                    score.changed = true;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        removed.addAll(removedFilms);
+    }
+
+    private void combine(long filmId, double logScore, boolean changed) {
+        Stripe stripe = stripeOf(filmId);
+        double combined;
+        stripe.lock.lock();
+        try {
+            Score score = stripe.scores.computeIfAbsent(filmId, id -> new Score());
+            score.logScore = logSumExp(score.logScore, logScore);
+            score.changed |= changed;
+            combined = score.logScore;
+        } finally {
+            stripe.lock.unlock();
+        }
+        // A film already in the heap has a score not below the threshold
+        if (combined >= topThreshold) {
+            offer(new Ranked(filmId, combined));
+        }
+    }
+
+    private void offer(Ranked ranked) {
+        synchronized (top) {
+            // The film may have been removed since its score was read
+            if (!contains(ranked.filmId())) {
+                return;
+            }
+            Ranked current = inTop.get(ranked.filmId());
+            if (current != null) {
+                // A concurrent event of the same film may have been offered first
+                if (current.logScore() >= ranked.logScore()) {
+                    return;
+                }
+                top.remove(current);
+            } else if (top.size() >= topSize) {
+                if (LOWEST_FIRST.compare(ranked, top.peek()) <= 0) {
+                    return;
+                }
+                inTop.remove(top.poll().filmId());
+            }
+            top.add(ranked);
+            inTop.put(ranked.filmId(), ranked);
+            updateThreshold();
+        }
+    }
+
+    /**
+     * Adds to the heap the film with the highest score that is not in it
+     */
+    private void refill() {
+        Ranked best = null;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (Map.Entry<Long, Score> entry : stripe.scores.entrySet()) {
+                    Ranked candidate = new Ranked(entry.getKey(), entry.getValue().logScore);
+                    if (!inTop.containsKey(candidate.filmId()) && (best == null || LOWEST_FIRST.compare(candidate, best) > 0)) {
+                        best = candidate;
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        if (best != null) {
+            top.add(best);
+            inTop.put(best.filmId(), best);
+        }
+        updateThreshold();
+    }
+
+    private boolean contains(long filmId) {
+        Stripe stripe = stripeOf(filmId);
+        stripe.lock.lock();
+        try {
+            return stripe.scores.containsKey(filmId);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void updateThreshold() {
+        topThreshold = top.size() < topSize ? Double.NEGATIVE_INFINITY : top.peek().logScore();
+    }
+
+    private Stripe stripeOf(long filmId) {
+        return stripes[(int) ((filmId * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - STRIPE_BITS))];
+    }
+
+    /**
+     * log(e^a + e^b) without overflowing
+     */
+    private static double logSumExp(double a, double b) {
+        double max = Math.max(a, b);
+        if (max == Double.NEGATIVE_INFINITY) {
+            return max;
+        }
+        return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+    }
+
+    private static class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Map<Long, Score> scores = new HashMap<>();
+    }
+
+    private static class Score {
+
+        private double logScore = Double.NEGATIVE_INFINITY;
+        // Not written to the checkpoint yet
+        private boolean changed;
+    }
+
+    private record Ranked(long filmId, double logScore) {}
+}
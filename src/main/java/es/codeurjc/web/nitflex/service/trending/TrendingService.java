@@ -0,0 +1,212 @@
+package es.codeurjc.web.nitflex.service.trending;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
+import es.codeurjc.web.nitflex.dto.review.ReviewActivityRow;
+import es.codeurjc.web.nitflex.model.TrendingScore;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.ReviewRepository;
+import es.codeurjc.web.nitflex.repository.TrendingScoreRepository;
+import es.codeurjc.web.nitflex.service.events.FavoriteChangedEvent;
+import es.codeurjc.web.nitflex.service.events.FilmDeletedEvent;
+import es.codeurjc.web.nitflex.service.events.ReviewChangedEvent;
+
+/**
+ * Films with the most recent activity, from the {@link TrendingScores}: each committed
+ * review and favorite adds to the score of the film, which halves every
+ * 'nitflex.trending.half-life'. Removed reviews and favorites do not subtract from it.
+ *
+ * The changed scores are written to the trending_score table every
+ * 'nitflex.trending.checkpoint-interval' and read back when the application starts. When
+ * there is no checkpoint yet, the scores are seeded from the recent reviews instead.
+ */
+@Service
+public class TrendingService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingService.class);
+
+    public static final int DEFAULT_LIMIT = 10;
+
+    public static final int MAX_LIMIT = 100;
+
+    static final double REVIEW_WEIGHT = 2;
+
+    static final double FAVORITE_WEIGHT = 1;
+
+    // Older reviews add less than 0.1% of their weight
+    private static final int SEEDED_HALF_LIVES = 10;
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private FilmRepository filmRepository;
+
+    private ReviewRepository reviewRepository;
+
+    private TrendingScoreRepository trendingScoreRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final Duration halfLife;
+
+    private final TrendingScores scores;
+
+    // Reviews created later are added by their events
+    private final long startedAt = System.currentTimeMillis();
+
+    // Until the checkpoint is read, writing one would replace it with partial scores
+    private volatile boolean loaded;
+
+    public TrendingService(FilmRepository filmRepository, ReviewRepository reviewRepository,
+            TrendingScoreRepository trendingScoreRepository, PlatformTransactionManager transactionManager,
+            @Value("${nitflex.trending.half-life}") Duration halfLife) {
+        this.filmRepository = filmRepository;
+        this.reviewRepository = reviewRepository;
+        this.trendingScoreRepository = trendingScoreRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.halfLife = halfLife;
+        this.scores = new TrendingScores(halfLife, MAX_LIMIT);
+    }
+
+    /**
+     * Returns the summaries of the films with the highest trending scores
+     * @param limit the maximum number of films, or null for the default one
+     */
+    public List<FilmSummaryDTO> findTrending(Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("The limit must be greater than 0");
+        }
+        List<Long> ids = scores.top(limit == null ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, FilmSummaryDTO> summaries = filmRepository.findSummariesByIds(ids).stream()
+                .collect(Collectors.toMap(FilmSummaryDTO::id, Function.identity()));
+        return ids.stream().map(summaries::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * @return the current trending score of the film, 0 if it has no activity
+     */
+    public double getScore(long filmId) {
+        return scores.scoreAt(filmId, System.currentTimeMillis());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        if (event.added()) {
+            scores.add(event.filmId(), REVIEW_WEIGHT, System.currentTimeMillis());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        if (event.added()) {
+            scores.add(event.filmId(), FAVORITE_WEIGHT, System.currentTimeMillis());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilmDeleted(FilmDeletedEvent event) {
+        scores.remove(event.filmId());
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        load();
+    }
+
+    /**
+     * Reads the checkpoint, or seeds the scores from the recent reviews if there is none
+     * @return the number of read scores or reviews
+     */
+    public synchronized int load() {
+        if (loaded) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        int read = 0;
+        long after = 0;
+        List<TrendingScore> batch;
+        do {
+            batch = trendingScoreRepository.findAfter(after, Limit.of(LOAD_BATCH_SIZE));
+            for (TrendingScore score : batch) {
+                scores.load(score.getFilmId(), score.getLogScore());
+                after = score.getFilmId();
+            }
+            read += batch.size();
+        } while (batch.size() == LOAD_BATCH_SIZE);
+
+        if (read == 0) {
+            read = seedFromReviews();
+        }
+        loaded = true;
+        log.info("Loaded {} trending scores in {} ms", scores.size(), System.currentTimeMillis() - start);
+        return read;
+    }
+
+    private int seedFromReviews() {
+        Date from = new Date(startedAt - halfLife.toMillis() * SEEDED_HALF_LIVES);
+        Date to = new Date(startedAt);
+        int read = 0;
+        long after = 0;
+        List<ReviewActivityRow> batch;
+        do {
+            batch = reviewRepository.findActivityAfter(after, from, to, Limit.of(LOAD_BATCH_SIZE));
+            for (ReviewActivityRow review : batch) {
+                scores.add(review.filmId(), REVIEW_WEIGHT, review.created_at().getTime());
+                after = review.id();
+            }
+            read += batch.size();
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        return read;
+    }
+
+    /**
+     * Writes the scores changed since the last checkpoint and deletes those of the
+     * removed films. If the transaction fails, including its commit, they are written
+     * by the next checkpoint.
+     * @return the number of written and deleted scores
+     */
+    @Scheduled(fixedDelayString = "${nitflex.trending.checkpoint-interval}",
+            initialDelayString = "${nitflex.trending.checkpoint-interval}")
+    public int checkpoint() {
+        if (!loaded) {
+            return 0;
+        }
+        Map<Long, Double> changed = scores.drainChanged();
+        Set<Long> removed = scores.drainRemoved();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                changed.forEach(trendingScoreRepository::saveScore);
+                trendingScoreRepository.deleteAllByIdInBatch(removed);
+            });
+        } catch (RuntimeException | Error e) {
+            scores.restore(changed.keySet(), removed);
+            throw e;
+        }
+        log.debug("Checkpointed {} trending scores and deleted {}", changed.size(), removed.size());
+        return changed.size() + removed.size();
+    }
+}
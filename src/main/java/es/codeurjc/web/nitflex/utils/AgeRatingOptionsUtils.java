@@ -6,22 +6,57 @@ import java.util.stream.Stream;
 
 public class AgeRatingOptionsUtils {
 
+    /**
+     * Age ratings of the films. They are stored as their minimum age, a one-byte code.
+     */
     public enum AgeRating {
-		GENERAL_AUDIENCES("+0"),
-		AGES_7_AND_UP("+7"),
-		AGES_12_AND_UP("+12"),
-		AGES_16_AND_UP("+16"),
-		AGES_18_AND_UP("+18");
+		GENERAL_AUDIENCES("+0", 0),
+		AGES_7_AND_UP("+7", 7),
+		AGES_12_AND_UP("+12", 12),
+		AGES_16_AND_UP("+16", 16),
+		AGES_18_AND_UP("+18", 18);
 	
 		private final String description;
+
+		private final byte minimumAge;
 	
-		AgeRating(String description) {
+		AgeRating(String description, int minimumAge) {
 			this.description = description;
+			this.minimumAge = (byte) minimumAge;
 		}
 	
 		public String getDescription() {
 			return description;
 		}
+
+		public byte getMinimumAge() {
+			return minimumAge;
+		}
+
+		/**
+		 * Parses a description such as "+18". The '+' may be missing, as an unencoded '+'
+		 * in a query string is read as a space.
+		 * @throws IllegalArgumentException if it is not one of the age ratings
+		 */
+		public static AgeRating fromDescription(String description) {
+			String value = description == null ? "" : description.trim();
+			String normalized = value.startsWith("+") ? value : "+" + value;
+			for (AgeRating ageRating : values()) {
+				if (ageRating.description.equals(normalized)) {
+					return ageRating;
+				}
+			}
+			throw new IllegalArgumentException("Invalid age rating: " + description);
+		}
+
+		public static AgeRating fromMinimumAge(byte minimumAge) {
+			for (AgeRating ageRating : values()) {
+				if (ageRating.minimumAge == minimumAge) {
+					return ageRating;
+				}
+			}
+			throw new IllegalArgumentException("Invalid age rating code: " + minimumAge);
+		}
 	}
 
 	public record AgeRatingOption(String description, boolean selected) {}
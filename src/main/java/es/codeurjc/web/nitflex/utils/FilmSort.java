@@ -0,0 +1,25 @@
+package es.codeurjc.web.nitflex.utils;
+
+/**
+ * Orders of the film summaries list. Films with the same like count or average score
+ * are ordered by id, so that the order is total and can be paginated with a cursor.
+ */
+public enum FilmSort {
+    ID,
+    POPULARITY,
+    RATING;
+
+    /**
+     * Parses the 'sort' request parameter, defaulting to the id order
+     */
+    public static FilmSort fromParam(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return ID;
+        }
+        try {
+            return valueOf(sort.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sort: " + sort);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package es.codeurjc.web.nitflex.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes the requests submitted by concurrent threads in shared transactions. A single
+ * writer thread takes the first pending request, waits at most the configured time for
+ * more to arrive (up to the maximum batch size), and writes all of them in one
+ * transaction. Each caller is blocked until the transaction with its request commits,
+ * or at most the configured timeout.
+ *
+ * If a batch fails, its requests are written again one by one, so that an invalid
+ * request only fails its own caller. Any error fails the requests of the batch, but
+ * the writer thread keeps taking new ones.
+ *
+ * @param <T> the requests
+ * @param <R> the result of each request, in the same order
+ */
+public class GroupCommitQueue<T, R> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitQueue.class);
+
+    private record Pending<T, R>(T request, CompletableFuture<R> result) {}
+
+    private final BlockingQueue<Pending<T, R>> queue = new LinkedBlockingQueue<>();
+
+    private final int maxBatchSize;
+
+    private final long maxWaitNanos;
+
+    private final Duration commitTimeout;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Function<List<T>, List<R>> writer;
+
+    private final Thread writerThread;
+
+    private volatile boolean closed;
+
+    /**
+     * @param commitTimeout how long a caller waits for its request to be committed
+     * @param writer writes a batch of requests inside the transaction and returns their results
+     */
+    public GroupCommitQueue(String name, int maxBatchSize, Duration maxWait, Duration commitTimeout,
+            TransactionTemplate transactionTemplate, Function<List<T>, List<R>> writer) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be greater than 0");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.commitTimeout = commitTimeout;
+        this.transactionTemplate = transactionTemplate;
+        this.writer = writer;
+        this.writerThread = Thread.ofPlatform().name(name).daemon().start(this::writeBatches);
+    }
+
+    /**
+     * Queues the request and waits until it is committed
+     * @return the result of the request
+     * @throws IllegalStateException if the request is not committed within the timeout. It
+     * is not written if it was still queued, and may still be committed otherwise.
+     */
+    public R submit(T request) {
+        if (closed) {
+            throw new IllegalStateException("The group commit queue is closed");
+        }
+        CompletableFuture<R> result = new CompletableFuture<>();
+        Pending<T, R> pending = new Pending<>(request, result);
+        queue.add(pending);
+        if (closed) {
+            // The writer may have stopped before the request was queued
+            result.completeExceptionally(new IllegalStateException("The group commit queue is closed"));
+        }
+        try {
+            return result.get(commitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (queue.remove(pending)) {
+                throw new IllegalStateException("The request was not written within " + commitTimeout, e);
+            }
+            throw new IllegalStateException("The request was not committed within " + commitTimeout
+                    + ", it may still be committed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the commit", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void writeBatches() {
+        List<Pending<T, R>> batch = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    Pending<T, R> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            write(batch);
+            batch.clear();
+        }
+        // Nothing is written once closed
+        queue.forEach(pending -> pending.result().completeExceptionally(
+                new IllegalStateException("The group commit queue is closed")));
+        batch.forEach(pending -> pending.result().completeExceptionally(
+                new IllegalStateException("The group commit queue is closed")));
+    }
+
+    private void write(List<Pending<T, R>> batch) {
+        List<R> results;
+        try {
+            results = transactionTemplate.execute(status -> writer.apply(requests(batch)));
+        } catch (Throwable e) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            log.debug("Group commit of {} requests failed, writing them one by one", batch.size(), e);
+            for (Pending<T, R> pending : batch) {
+                write(List.of(pending));
+            }
+            return;
+        }
+        // The batch is committed, so it must not be written again if the results are wrong
+        complete(batch, results);
+    }
+
+    private void complete(List<Pending<T, R>> batch, List<R> results) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (results != null && i < results.size()) {
+                batch.get(i).result().complete(results.get(i));
+            } else {
+                batch.get(i).result().completeExceptionally(
+                        new IllegalStateException("The request was committed without a result"));
+            }
+        }
+    }
+
+    private List<T> requests(List<Pending<T, R>> batch) {
+        List<T> requests = new ArrayList<>(batch.size());
+        for (Pending<T, R> pending : batch) {
+            requests.add(pending.request());
+        }
+        return requests;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        writerThread.interrupt();
+    }
+}
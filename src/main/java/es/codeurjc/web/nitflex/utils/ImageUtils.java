@@ -1,8 +1,25 @@
 package es.codeurjc.web.nitflex.utils;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
 
 import org.hibernate.engine.jdbc.BlobProxy;
 import org.springframework.core.io.Resource;
@@ -15,6 +32,8 @@ import org.springframework.web.server.ResponseStatusException;
 @Service
 public class ImageUtils {
 
+	private static final float JPEG_QUALITY = 0.85f;
+
     public Blob remoteImageToBlob(String imageUrl){
         try {
             Resource image = new UrlResource(imageUrl);
@@ -47,4 +66,118 @@ public class ImageUtils {
         return null;
 	}
 
+	public byte[] blobToBytes(Blob blob) {
+		try {
+			return blob.getBinaryStream().readAllBytes();
+		} catch (IOException | SQLException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Error at processing the image");
+		}
+	}
+
+	/**
+	 * Returns the hex encoded SHA-256 of the image, used to identify its content
+	 */
+	public String contentHash(byte[] image) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(image));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+	/**
+	 * Detects the media type of the image from its first bytes
+	 */
+	public String detectContentType(byte[] image) {
+		if (startsWith(image, 0, 0xFF, 0xD8, 0xFF)) {
+			return "image/jpeg";
+		} else if (startsWith(image, 0, 0x89, 'P', 'N', 'G')) {
+			return "image/png";
+		} else if (startsWith(image, 0, 'G', 'I', 'F', '8')) {
+			return "image/gif";
+		} else if (startsWith(image, 0, 'R', 'I', 'F', 'F') && startsWith(image, 8, 'W', 'E', 'B', 'P')) {
+			return "image/webp";
+		}
+		return "application/octet-stream";
+	}
+
+	private boolean startsWith(byte[] data, int offset, int... prefix) {
+		if (data.length < offset + prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if ((data[offset + i] & 0xFF) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes the image with ImageIO
+	 * @return the decoded image, or empty if its format is not supported
+	 */
+	public Optional<BufferedImage> decode(byte[] image) {
+		try {
+			return Optional.ofNullable(ImageIO.read(new ByteArrayInputStream(image)));
+		} catch (IOException e) {
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Scales the image down to the given width, keeping its aspect ratio, and encodes it as JPEG.
+	 * Images narrower than the width are only re-encoded.
+	 */
+	public byte[] scaleToJpeg(BufferedImage image, int width) {
+		BufferedImage scaled = image;
+		int currentWidth = image.getWidth();
+		int currentHeight = image.getHeight();
+		// Halving in steps keeps the quality of bilinear interpolation on big reductions
+		do {
+			int nextWidth = Math.max(width, currentWidth / 2);
+			if (nextWidth >= currentWidth) {
+				break;
+			}
+			currentHeight = Math.max(1, (int) ((long) currentHeight * nextWidth / currentWidth));
+			currentWidth = nextWidth;
+			scaled = draw(scaled, currentWidth, currentHeight);
+		} while (currentWidth > width);
+
+		if (scaled.getType() != BufferedImage.TYPE_INT_RGB) {
+			scaled = draw(scaled, scaled.getWidth(), scaled.getHeight());
+		}
+		return encodeJpeg(scaled);
+	}
+
+	private BufferedImage draw(BufferedImage source, int width, int height) {
+		BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = target.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+		} finally {
+			graphics.dispose();
+		}
+		return target;
+	}
+
+	private byte[] encodeJpeg(BufferedImage image) {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+			ImageWriteParam params = writer.getDefaultWriteParam();
+			params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			params.setCompressionQuality(JPEG_QUALITY);
+			writer.setOutput(imageOut);
+			writer.write(null, new IIOImage(image, null, null), params);
+		} catch (IOException e) {
+			throw new IllegalStateException("Error encoding the image", e);
+		} finally {
+			writer.dispose();
+		}
+		return out.toByteArray();
+	}
+
 }
@@ -0,0 +1,152 @@
+package es.codeurjc.web.nitflex.utils;
+
+import java.util.Arrays;
+
+/**
+ * Map from long to int stored in two primitive arrays, with open addressing and linear
+ * probing, so that neither the keys nor the values are boxed. Absent keys read as 0, and
+ * a key whose value drops to 0 is removed. Long.MIN_VALUE cannot be used as a key.
+ *
+ * Not thread-safe.
+ */
+public class LongIntHashMap {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntHashMap() {
+        this(4);
+    }
+
+    /**
+     * @param expectedSize the number of keys that fit without resizing
+     */
+    public LongIntHashMap(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) * 2);
+    }
+
+    public int get(long key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : values[slot];
+    }
+
+    /**
+     * Adds a delta to the value of the key
+     * @return the new value
+     */
+    public int addTo(long key, int delta) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Invalid key: " + key);
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            int value = values[slot] + delta;
+            if (value == 0) {
+                removeSlot(slot);
+            } else {
+                values[slot] = value;
+            }
+            return value;
+        }
+        if (delta != 0) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            insert(key, delta);
+        }
+        return delta;
+    }
+
+    public void remove(long key) {
+        int slot = find(key);
+        if (slot >= 0) {
+            removeSlot(slot);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    private int find(long key) {
+        for (int slot = home(key); keys[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long key, int value) {
+        int slot = home(key);
+        while (keys[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * Empties the slot and moves back the following keys of the probe sequence that would
+     * no longer be found, so that no tombstones are needed
+     */
+    private void removeSlot(int slot) {
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            if (((next - home(keys[next])) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = FREE;
+        values[gap] = 0;
+        size--;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != FREE) {
+                insert(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private int home(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
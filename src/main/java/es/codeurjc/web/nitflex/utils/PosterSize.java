@@ -0,0 +1,38 @@
+package es.codeurjc.web.nitflex.utils;
+
+/**
+ * Variants of a film poster. The full variant is the uploaded image, the others are
+ * scaled down copies generated in the background after the upload.
+ */
+public enum PosterSize {
+    THUMB(160),
+    CARD(480),
+    FULL(0);
+
+    private final int width;
+
+    PosterSize(int width) {
+        this.width = width;
+    }
+
+    /**
+     * @return the width of the variant in pixels, or 0 for the original image
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Parses the 'size' request parameter, defaulting to the full image
+     */
+    public static PosterSize fromParam(String size) {
+        if (size == null || size.isBlank()) {
+            return FULL;
+        }
+        try {
+            return valueOf(size.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown poster size: " + size);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package es.codeurjc.web.nitflex.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Counts the statements executed, with their SQL, and the rows read through its
+ * connections into the {@link SqlCounts} of the current thread. Statements are only wrapped while the thread
+ * is counting, so the rest of the work (startup, '@Async' and '@Scheduled' methods) uses
+ * the statements of the driver as they are.
+ *
+ * Each execution is one statement, a batch included, as it is one round trip to the
+ * database.
+ */
+public class SqlCountingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    public SqlCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    private static Connection counting(Connection connection) {
+        return proxy(Connection.class, connection, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            SqlCounts counts = SqlCounts.current();
+            if (counts != null && result instanceof Statement statement) {
+                Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                        : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                // The SQL of prepared statements is given here, that of the rest on execution
+                String preparedSql = type != Statement.class && args[0] instanceof String sql ? sql : null;
+                return counting(type, statement, preparedSql, counts);
+            }
+            return result;
+        });
+    }
+
+    private static Object counting(Class<?> type, Statement statement, String preparedSql, SqlCounts counts) {
+        return proxy(type, statement, (proxy, method, args) -> {
+            if (EXECUTE_METHODS.contains(method.getName())) {
+                counts.statementExecuted(args != null && args.length > 0 && args[0] instanceof String sql ? sql : preparedSql);
+            }
+            Object result = invoke(statement, method, args);
+            if (result instanceof ResultSet resultSet) {
+                return counting(resultSet, counts);
+            }
+            return result;
+        });
+    }
+
+    private static ResultSet counting(ResultSet resultSet, SqlCounts counts) {
+        return proxy(ResultSet.class, resultSet, (proxy, method, args) -> {
+            Object result = invoke(resultSet, method, args);
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                counts.rowRead();
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Wraps the target in a proxy equal only to itself, as the proxies are kept in hash
+     * maps by Hibernate
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    return handler.invoke(proxy, method, args);
+                }
+            }
+        });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package es.codeurjc.web.nitflex.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Statements executed and rows read by the current thread while it is counting, as
+ * recorded by the {@link SqlCountingDataSource}. Each request of the web server is
+ * handled by a single thread, so the counts of a request are those of its thread
+ * between {@link #start} and {@link #stop}.
+ *
+ * The SQL of each statement is kept as well, up to {@link #MAX_DISTINCT_SQL} different
+ * strings, to tell which statements a request repeats. It is only turned into shapes,
+ * without literals, when they are asked for.
+ */
+public final class SqlCounts {
+
+    static final int MAX_DISTINCT_SQL = 100;
+
+    private static final ThreadLocal<SqlCounts> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private int statements;
+
+    private long rows;
+
+    private final Map<String, Integer> executionsBySql = new HashMap<>();
+
+    private SqlCounts() {
+    }
+
+    /**
+     * Starts counting the statements of the current thread
+     */
+    public static SqlCounts start() {
+        SqlCounts counts = new SqlCounts();
+        CURRENT.set(counts);
+        return counts;
+    }
+
+    /**
+     * @return the counts of the current thread, or null if it is not counting
+     */
+    public static SqlCounts current() {
+        return CURRENT.get();
+    }
+
+    public void stop() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    public int statements() {
+        return statements;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the executed statements grouped by their shape, the SQL with its literals
+     * and lists of parameters replaced by '?', from the most to the least executed, such
+     * as "12 x select ... where f1_0.id=?"
+     */
+    public List<String> shapes() {
+        Map<String, Integer> executionsByShape = new HashMap<>();
+        int counted = 0;
+        for (Map.Entry<String, Integer> entry : executionsBySql.entrySet()) {
+            executionsByShape.merge(shape(entry.getKey()), entry.getValue(), Integer::sum);
+            counted += entry.getValue();
+        }
+        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(executionsByShape.entrySet());
+        sorted.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        List<String> shapes = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : sorted) {
+            shapes.add(entry.getValue() + " x " + entry.getKey());
+        }
+        if (counted < statements) {
+            shapes.add((statements - counted) + " x (other statements)");
+        }
+        return shapes;
+    }
+
+    static String shape(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    void statementExecuted(String sql) {
+        statements++;
+        if (sql != null && (executionsBySql.size() < MAX_DISTINCT_SQL || executionsBySql.containsKey(sql))) {
+            executionsBySql.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void rowRead() {
+        rows++;
+    }
+}
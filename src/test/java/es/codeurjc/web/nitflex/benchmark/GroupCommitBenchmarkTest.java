@@ -0,0 +1,89 @@
+package es.codeurjc.web.nitflex.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.GroupCommitService;
+
+/**
+ * Compares the throughput and latency of creating films with one commit per request
+ * and with group commit. It is only run on demand, as its results depend on the machine
+ * and the database (an in-memory H2 commit costs much less than a durable one):
+ *
+ * <pre>
+ * mvn test -Dtest=GroupCommitBenchmarkTest -Dnitflex.benchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "nitflex.benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:benchmarkdb",
+        "nitflex.group-commit.enabled=true" })
+public class GroupCommitBenchmarkTest {
+
+    private static final int THREADS = Integer.getInteger("nitflex.benchmark.threads", 32);
+
+    private static final int REQUESTS_PER_THREAD = Integer.getInteger("nitflex.benchmark.requests", 200);
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private GroupCommitService groupCommitService;
+
+    @Test
+    public void compareCommitModes() throws Exception {
+        // The first round of each mode only warms up
+        run("per-request (warm-up)", filmService::save);
+        run("group commit (warm-up)", groupCommitService::saveFilm);
+        run("per-request", filmService::save);
+        run("group commit", groupCommitService::saveFilm);
+    }
+
+    private void run(String mode, Function<CreateFilmRequest, FilmDTO> save) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<long[]>> threads = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                threads.add(executor.submit(() -> {
+                    long[] latencies = new long[REQUESTS_PER_THREAD];
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        long requestStart = System.nanoTime();
+                        save.apply(new CreateFilmRequest("Benchmark " + i, "Synopsis", 2000, "+12"));
+                        latencies[i] = System.nanoTime() - requestStart;
+                    }
+                    return latencies;
+                }));
+            }
+            long[] latencies = new long[THREADS * REQUESTS_PER_THREAD];
+            for (int t = 0; t < THREADS; t++) {
+                System.arraycopy(threads.get(t).get(), 0, latencies, t * REQUESTS_PER_THREAD, REQUESTS_PER_THREAD);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            System.out.printf("%-24s %8.0f films/s  p50 %6.2f ms  p99 %6.2f ms%n", mode,
+                    latencies.length * 1e9 / elapsed, percentile(latencies, 0.50), percentile(latencies, 0.99));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,178 @@
+package es.codeurjc.web.nitflex.integration;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import es.codeurjc.web.nitflex.ImageTestUtils;
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO;
+import es.codeurjc.web.nitflex.model.Film;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.storage.OrphanPosterCleaner;
+import es.codeurjc.web.nitflex.service.storage.PosterStorage;
+import es.codeurjc.web.nitflex.service.storage.PosterMigrationRunner;
+import es.codeurjc.web.nitflex.utils.ImageUtils;
+import es.codeurjc.web.nitflex.utils.PosterSize;
+import io.restassured.RestAssured;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.datasource.url=jdbc:h2:mem:filesystempostersdb")
+public class FileSystemPosterStorageIntegrationTest {
+
+    private static Path postersDirectory;
+
+    @DynamicPropertySource
+    static void posterStorage(DynamicPropertyRegistry registry) throws IOException {
+        postersDirectory = Files.createTempDirectory("posters");
+        registry.add("nitflex.posters.storage", () -> "filesystem");
+        registry.add("nitflex.posters.directory", postersDirectory::toString);
+        registry.add("nitflex.posters.orphan-grace-period", () -> "0s");
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ImageUtils imageUtils;
+
+    @Autowired
+    private PosterMigrationRunner posterMigrationRunner;
+
+    @Autowired
+    private OrphanPosterCleaner orphanPosterCleaner;
+
+    @Autowired
+    private PosterStorage posterStorage;
+
+    private User testUser;
+
+    @BeforeEach
+    public void setUp() {
+        RestAssured.port = port;
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.basePath = "/";
+        testUser = userRepository.save(new User("testuser", "testuser@example.com"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.delete(testUser);
+    }
+
+    @Test
+    public void whenSamePosterIsUploadedTwice_thenItIsStoredOnce() throws IOException {
+        FilmDTO first = filmService.save(new CreateFilmRequest("First", "Synopsis", 2016, "+18"),
+                ImageTestUtils.createSampleImage());
+        FilmDTO second = filmService.save(new CreateFilmRequest("Second", "Synopsis", 2016, "+18"),
+                ImageTestUtils.createSampleImage());
+
+        String hash = filmService.getPoster(first.id()).orElseThrow().hash();
+        assertThat(filmService.getPoster(second.id()).orElseThrow().hash()).isEqualTo(hash);
+        try (Stream<Path> files = Files.walk(postersDirectory)) {
+            assertThat(files.filter(file -> file.getFileName().toString().equals(hash))).hasSize(1);
+        }
+    }
+
+    @Test
+    public void whenPosterIsServedFromFile_thenItsBytesAreReturned() throws IOException {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Deadpool", "Synopsis", 2016, "+18"),
+                ImageTestUtils.createSampleImage());
+
+        byte[] poster = given()
+                .when()
+                .get("/films/{id}/poster", film.id())
+                .then()
+                .statusCode(200)
+                .contentType("image/jpeg")
+                .extract()
+                .asByteArray();
+
+        assertThat(poster).isEqualTo(ImageTestUtils.createSampleImage().getBytes());
+    }
+
+    @Test
+    public void whenPostersAreMigrated_thenLegacyBlobsAreMovedToTheStorage() throws IOException {
+        Film film = new Film("Legacy", "Synopsis", 2016, "+18");
+        film.setPosterFile(imageUtils.multiPartFileImageToBlob(ImageTestUtils.createSampleImage()));
+        film = filmRepository.save(film);
+
+        posterMigrationRunner.migrateLegacyPosters();
+
+        Film migrated = filmRepository.findById(film.getId()).orElseThrow();
+        assertThat(migrated.getPosterFile()).isNull();
+        assertThat(migrated.getPosterHash()).isEqualTo(imageUtils.contentHash(ImageTestUtils.createSampleImage().getBytes()));
+        assertThat(migrated.getPosterContentType()).isEqualTo("image/jpeg");
+        assertThat(filmService.getPoster(film.getId()).flatMap(poster -> filmService.getPosterImage(poster, PosterSize.FULL)))
+                .isPresent();
+    }
+
+    @Test
+    public void whenPosterIsReplaced_thenTheOldImageIsDeletedOnceNoFilmUsesIt() throws IOException {
+        FilmDTO first = filmService.save(new CreateFilmRequest("First", "Synopsis", 2016, "+18"), image("op.jpg"));
+        String oldHash = filmService.getPoster(first.id()).orElseThrow().hash();
+
+        filmService.update(first.id(), new FilmSimpleDTO(first.id(), "First", "Synopsis", 2016, "+18"), image("dune.jpg"));
+        // An upload of the released image before the sweep references it again
+        FilmDTO second = filmService.save(new CreateFilmRequest("Second", "Synopsis", 2016, "+18"), image("op.jpg"));
+        orphanPosterCleaner.deleteOrphans();
+        assertThat(storedFile(oldHash)).isTrue();
+
+        filmService.update(second.id(), new FilmSimpleDTO(second.id(), "Second", "Synopsis", 2016, "+18"), image("dune.jpg"));
+        orphanPosterCleaner.deleteOrphans();
+        assertThat(storedFile(oldHash)).isFalse();
+        assertThat(storedFile(filmService.getPoster(second.id()).orElseThrow().hash())).isTrue();
+    }
+
+    @Test
+    public void whenReleasedPosterIsStoredAgainBeforeTheSweep_thenItIsNotDeleted() throws IOException {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Released", "Synopsis", 2016, "+18"), image("bb.jpg"));
+        String releasedHash = filmService.getPoster(film.id()).orElseThrow().hash();
+        filmService.update(film.id(), new FilmSimpleDTO(film.id(), "Released", "Synopsis", 2016, "+18"), image("mi.jpg"));
+
+        // An upload of the same image that has stored it, but not committed its film yet
+        posterStorage.store(image("bb.jpg").getBytes());
+        orphanPosterCleaner.deleteOrphans();
+
+        assertThat(storedFile(releasedHash)).isTrue();
+    }
+
+    private static MockMultipartFile image(String name) throws IOException {
+        try (FileInputStream input = new FileInputStream("images/" + name)) {
+            return new MockMultipartFile(name, name, "image/jpeg", input);
+        }
+    }
+
+    private static boolean storedFile(String hash) throws IOException {
+        try (Stream<Path> files = Files.walk(postersDirectory)) {
+            return files.anyMatch(file -> file.getFileName().toString().equals(hash));
+        }
+    }
+}
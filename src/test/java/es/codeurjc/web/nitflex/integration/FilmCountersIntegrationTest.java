@@ -0,0 +1,211 @@
+package es.codeurjc.web.nitflex.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.codeurjc.web.nitflex.dto.CursorPage;
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.model.Film;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.FavoriteFilmService;
+import es.codeurjc.web.nitflex.service.FilmCountersReconciler;
+import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.ReviewService;
+import es.codeurjc.web.nitflex.service.UserComponent;
+import es.codeurjc.web.nitflex.service.UserService;
+import es.codeurjc.web.nitflex.utils.FilmSort;
+
+@SpringBootTest
+public class FilmCountersIntegrationTest {
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private FavoriteFilmService favoriteFilmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserComponent userComponent;
+
+    @Autowired
+    private FilmCountersReconciler filmCountersReconciler;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp() {
+        userRepository.save(new User("testuser", "testuser@example.com"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void whenLikesAndReviewsChange_thenCountersAreUpdated() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Counted", "Synopsis", 2020, "+12"));
+
+        favoriteFilmService.addToFavorites(film.id());
+        favoriteFilmService.addToFavorites(film.id());
+        reviewService.addReview(film.id(), new CreateReviewRequest("Good", 6));
+        FilmDTO reviewed = reviewService.addReview(film.id(), new CreateReviewRequest("Great", 9));
+
+        Film counted = filmRepository.findById(film.id()).orElseThrow();
+        assertThat(counted.getLikeCount()).isEqualTo(1);
+        assertThat(counted.getReviewCount()).isEqualTo(2);
+        assertThat(counted.getScoreSum()).isEqualTo(15);
+        assertThat(counted.getAverageScore()).isEqualTo(7.5);
+
+        favoriteFilmService.removeFromFavorites(film.id());
+        reviewService.deleteReview(film.id(), reviewed.reviews().get(0).id());
+
+        counted = filmRepository.findById(film.id()).orElseThrow();
+        assertThat(counted.getLikeCount()).isZero();
+        assertThat(counted.getReviewCount()).isEqualTo(1);
+        assertThat(counted.getAverageScore()).isEqualTo(9);
+    }
+
+    @Test
+    public void whenUserIsDeleted_thenTheirLikesAndReviewsAreSubtracted() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Counted", "Synopsis", 2020, "+12"));
+        favoriteFilmService.addToFavorites(film.id());
+        reviewService.addReview(film.id(), new CreateReviewRequest("Good", 6));
+
+        userService.deleteUser(userComponent.getCurrentUserId());
+
+        Film counted = filmRepository.findById(film.id()).orElseThrow();
+        assertThat(counted.getLikeCount()).isZero();
+        assertThat(counted.getReviewCount()).isZero();
+        assertThat(counted.getScoreSum()).isZero();
+        assertThat(counted.getAverageScore()).isZero();
+    }
+
+    @Test
+    public void whenFilmIsUpdatedWhileItIsLiked_thenTheLikeIsKept() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Counted", "Synopsis", 2020, "+12"));
+
+        // The like commits after the update has loaded the film, and before it commits
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            filmService.update(film.id(), new FilmSimpleDTO(film.id(), "Updated", "Synopsis", 2020, "+12"));
+            try {
+                CompletableFuture.runAsync(() -> transaction.executeWithoutResult(
+                        like -> filmRepository.addLikes(film.id(), 1))).get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Film updated = filmRepository.findById(film.id()).orElseThrow();
+        assertThat(updated.getTitle()).isEqualTo("Updated");
+        assertThat(updated.getLikeCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenAFilmIsLikedConcurrently_thenItIsLikedOnce() throws Exception {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Counted", "Synopsis", 2020, "+12"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> likes = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                likes.add(executor.submit(() -> {
+                    start.await();
+                    favoriteFilmService.addToFavorites(film.id());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> like : likes) {
+                like.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(filmRepository.findById(film.id()).orElseThrow().getLikeCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenCountersDrift_thenReconcilerRecomputesThem() {
+        // Films left by other tests may have been changed directly
+        filmCountersReconciler.reconcile();
+        FilmDTO film = filmService.save(new CreateFilmRequest("Counted", "Synopsis", 2020, "+12"));
+        reviewService.addReview(film.id(), new CreateReviewRequest("Good", 6));
+        jdbcTemplate.update("UPDATE film SET like_count = 42, review_count = 3 WHERE id = ?", film.id());
+
+        assertThat(filmCountersReconciler.reconcile()).isEqualTo(1);
+
+        Film reconciled = filmRepository.findById(film.id()).orElseThrow();
+        assertThat(reconciled.getLikeCount()).isZero();
+        assertThat(reconciled.getReviewCount()).isEqualTo(1);
+        assertThat(reconciled.getAverageScore()).isEqualTo(6);
+        assertThat(filmCountersReconciler.reconcile()).isZero();
+    }
+
+    @Test
+    public void whenSortingByRating_thenPagesFollowTheAverageScore() {
+        FilmDTO low = filmService.save(new CreateFilmRequest("Low", "Synopsis", 2020, "+12"));
+        FilmDTO high = filmService.save(new CreateFilmRequest("High", "Synopsis", 2020, "+12"));
+        reviewService.addReview(low.id(), new CreateReviewRequest("Meh", 1));
+        reviewService.addReview(high.id(), new CreateReviewRequest("Top", 10));
+        reviewService.addReview(high.id(), new CreateReviewRequest("Top", 9));
+
+        // Walk all the pages one film at a time
+        List<FilmSummaryDTO> sorted = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<FilmSummaryDTO> page = filmService.findSummaryPage(FilmSort.RATING, cursor, 1);
+            sorted.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        List<Long> ids = sorted.stream().map(FilmSummaryDTO::id).toList();
+        assertThat(ids).doesNotHaveDuplicates();
+        assertThat(ids.indexOf(high.id())).isLessThan(ids.indexOf(low.id()));
+        assertThat(sorted).extracting(FilmSummaryDTO::averageScore).isSortedAccordingTo(Comparator.reverseOrder());
+        assertThat(sorted.get(ids.indexOf(high.id())).averageScore()).isEqualTo(9.5);
+    }
+}
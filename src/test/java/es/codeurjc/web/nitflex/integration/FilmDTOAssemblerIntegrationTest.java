@@ -0,0 +1,124 @@
+package es.codeurjc.web.nitflex.integration;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.codeurjc.web.nitflex.dto.CursorPage;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.model.Film;
+import es.codeurjc.web.nitflex.model.Review;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.ReviewRepository;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.FilmService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class FilmDTOAssemblerIntegrationTest {
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    @Transactional
+    public void whenListingFilmsWithReviews_thenStatementCountDoesNotDependOnListSize() {
+        // Given
+        List<Film> films = createFilmsWithReviewsAndLikers(10);
+        long beforeFirst = films.get(0).getId() - 1;
+
+        // When
+        long smallPageStatements = countStatements(() -> filmService.findPage(beforeFirst, 2));
+        long bigPageStatements = countStatements(() -> filmService.findPage(beforeFirst, 10));
+
+        // Then: films, reviews with their users and likers
+        assertThat(smallPageStatements).isEqualTo(3);
+        assertThat(bigPageStatements).isEqualTo(smallPageStatements);
+    }
+
+    @Test
+    @Transactional
+    public void whenListingFilmsWithReviews_thenReviewsAndLikersBelongToTheirFilm() {
+        // Given
+        List<Film> films = createFilmsWithReviewsAndLikers(3);
+
+        // When
+        CursorPage<FilmDTO> page = filmService.findPage(films.get(0).getId() - 1, 3);
+
+        // Then
+        for (int i = 0; i < films.size(); i++) {
+            FilmDTO film = page.items().get(i);
+            assertThat(film.id()).isEqualTo(films.get(i).getId());
+            assertThat(film.reviews()).hasSize(2);
+            assertThat(film.reviews()).allSatisfy(review -> {
+                assertThat(review.text()).startsWith(film.title());
+                assertThat(review.user().name()).startsWith("reviewer");
+            });
+            assertThat(film.usersThatLiked()).hasSize(1);
+        }
+    }
+
+    private long countStatements(Runnable action) {
+        entityManager.clear();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<Film> createFilmsWithReviewsAndLikers(int numFilms) {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < numFilms; i++) {
+            Film film = filmRepository.save(new Film("Assembled " + i, "Synopsis", 2000 + i, "+12"));
+
+            for (int j = 0; j < 2; j++) {
+                User reviewer = userRepository.save(new User("reviewer " + i + "-" + j, "reviewer@example.com"));
+                Review review = new Review(film.getTitle() + " review " + j, 5 + j);
+                review.setFilm(film);
+                review.setUser(reviewer);
+                reviewRepository.save(review);
+            }
+
+            User liker = new User("liker " + i, "liker@example.com");
+            liker.getFavoriteFilms().add(film);
+            userRepository.save(liker);
+
+            films.add(film);
+        }
+        entityManager.flush();
+        return films;
+    }
+}
@@ -0,0 +1,128 @@
+package es.codeurjc.web.nitflex.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.ReviewRepository;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.ReviewService;
+import es.codeurjc.web.nitflex.service.exceptions.FilmNotFoundException;
+import es.codeurjc.web.nitflex.service.storage.OrphanPosterCleaner;
+import es.codeurjc.web.nitflex.service.storage.PosterStorage;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:filmdeletedb",
+        "nitflex.posters.orphan-grace-period=0s" })
+public class FilmDeleteIntegrationTest {
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PosterStorage posterStorage;
+
+    @Autowired
+    private OrphanPosterCleaner orphanPosterCleaner;
+
+    private User testUser;
+
+    @BeforeEach
+    public void setUp() {
+        testUser = userRepository.save(new User("testuser", "testuser@example.com"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void whenFilmsAreDeleted_thenTheirFavoritesAndReviewsAreDeletedToo() {
+        FilmDTO deleted = filmService.save(new CreateFilmRequest("Deleted", "Synopsis", 2020, "+12"));
+        FilmDTO kept = filmService.save(new CreateFilmRequest("Kept", "Synopsis", 2020, "+12"));
+        for (FilmDTO film : List.of(deleted, kept)) {
+            reviewService.addReview(film.id(), new CreateReviewRequest("Review", 5));
+        }
+        User liker = new User("liker", "liker@example.com");
+        liker.getFavoriteFilms().add(filmRepository.findById(deleted.id()).orElseThrow());
+        liker.getFavoriteFilms().add(filmRepository.findById(kept.id()).orElseThrow());
+        liker = userRepository.save(liker);
+        long reviews = reviewRepository.count();
+
+        filmService.delete(List.of(deleted.id()));
+
+        assertThat(filmRepository.existsById(deleted.id())).isFalse();
+        assertThat(reviewRepository.count()).isEqualTo(reviews - 1);
+        assertThat(userRepository.isFavoriteFilm(liker.getId(), deleted.id())).isFalse();
+        assertThat(userRepository.isFavoriteFilm(liker.getId(), kept.id())).isTrue();
+        assertThat(filmService.findOne(kept.id()).orElseThrow().reviews()).hasSize(1);
+    }
+
+    @Test
+    public void whenAnyFilmDoesNotExist_thenNoneIsDeleted() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Not deleted", "Synopsis", 2020, "+12"));
+
+        assertThatThrownBy(() -> filmService.delete(List.of(film.id(), Long.MAX_VALUE)))
+                .isInstanceOf(FilmNotFoundException.class);
+
+        assertThat(filmRepository.existsById(film.id())).isTrue();
+    }
+
+    @Test
+    public void whenLastFilmWithAPosterIsDeleted_thenThePosterIsDeleted() throws Exception {
+        // An image no other test uses, so that only these films reference it
+        MockMultipartFile image = uniqueImage();
+        FilmDTO first = filmService.save(new CreateFilmRequest("First", "Synopsis", 2020, "+12"), image);
+        FilmDTO second = filmService.save(new CreateFilmRequest("Second", "Synopsis", 2020, "+12"), image);
+        String hash = filmService.getPoster(first.id()).orElseThrow().hash();
+
+        // The image is shared with the second film
+        filmService.delete(first.id());
+        orphanPosterCleaner.deleteOrphans();
+        assertThat(posterStorage.load(hash)).isPresent();
+
+        filmService.delete(second.id());
+        orphanPosterCleaner.deleteOrphans();
+        assertThat(posterStorage.load(hash)).isEmpty();
+    }
+
+    private MockMultipartFile uniqueImage() throws IOException {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, (int) System.nanoTime());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return new MockMultipartFile("imageField", "poster.png", "image/png", out.toByteArray());
+    }
+}
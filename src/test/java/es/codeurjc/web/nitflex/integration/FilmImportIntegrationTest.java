@@ -0,0 +1,87 @@
+package es.codeurjc.web.nitflex.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+
+import es.codeurjc.web.nitflex.dto.film.FilmImportReport;
+import es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO;
+import es.codeurjc.web.nitflex.model.Film;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.service.ReviewService;
+import es.codeurjc.web.nitflex.service.importer.FilmImportFormat;
+import es.codeurjc.web.nitflex.service.importer.FilmImporter;
+
+// The whole catalog is imported in a database of its own, so that the ids it takes do not
+// collide with the blocks of ids already allocated by the contexts of other tests
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:importdb")
+public class FilmImportIntegrationTest {
+
+    @Autowired
+    private FilmImporter filmImporter;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Test
+    public void whenSampleCatalogIsImported_thenEveryFilmIsInserted() throws IOException {
+        long films = filmRepository.count();
+
+        FilmImportReport report;
+        try (Reader reader = Files.newBufferedReader(Path.of("films.csv"), StandardCharsets.UTF_8)) {
+            report = filmImporter.importFilms(reader, FilmImportFormat.CSV);
+        }
+
+        assertThat(report.rejected()).isZero();
+        assertThat(report.imported()).isEqualTo(100);
+        assertThat(filmRepository.count()).isEqualTo(films + 100);
+    }
+
+    @Test
+    public void whenNdjsonIsImported_thenInvalidRowsAreReportedAndReviewsAreCounted() throws IOException {
+        String input = """
+                {"title": "Imported", "synopsis": "With reviews", "releaseYear": 2001, "ageRating": "+7", "reviews": [{"text": "Good", "score": 6}, {"text": "Great", "score": 9}]}
+                {"title": "", "releaseYear": 2001, "ageRating": "+7"}
+                {"title": "Wrong rating", "releaseYear": 2001, "ageRating": "+13"}
+
+                not json
+                {"title": "Rating without plus", "releaseYear": 2001, "ageRating": " 18 "}
+                {"title": "Without rating", "releaseYear": 2001}
+                """;
+
+        FilmImportReport report = filmImporter.importFilms(new StringReader(input), FilmImportFormat.NDJSON);
+
+        assertThat(report.imported()).isEqualTo(3);
+        assertThat(report.importedReviews()).isEqualTo(2);
+        assertThat(report.rejected()).isEqualTo(3);
+        assertThat(report.rejectedRows()).extracting(FilmImportReport.RejectedRow::line).containsExactly(2L, 3L, 5L);
+
+        FilmSimpleDTO imported = filmRepository.findSimpleAfter(0, Limit.unlimited()).stream()
+                .filter(film -> film.title().equals("Imported"))
+                .findFirst()
+                .orElseThrow();
+        Film film = filmRepository.findById(imported.id()).orElseThrow();
+        assertThat(film.getReviewCount()).isEqualTo(2);
+        assertThat(film.getAverageScore()).isEqualTo(7.5);
+        assertThat(reviewService.findPage(imported.id(), null, null).items()).hasSize(2);
+
+        // The age ratings are read as the films API reads them
+        assertThat(filmRepository.findSimpleAfter(0, Limit.unlimited()))
+                .filteredOn(rated -> rated.title().equals("Rating without plus"))
+                .extracting(FilmSimpleDTO::ageRating)
+                .containsExactly("+18");
+    }
+}
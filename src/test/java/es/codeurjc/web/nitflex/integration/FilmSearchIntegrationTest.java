@@ -0,0 +1,103 @@
+package es.codeurjc.web.nitflex.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSuggestion;
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.FavoriteFilmService;
+import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.search.FilmSearchService;
+import es.codeurjc.web.nitflex.service.search.TitleSuggestService;
+
+@SpringBootTest
+public class FilmSearchIntegrationTest {
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private FilmSearchService filmSearchService;
+
+    @Autowired
+    private TitleSuggestService titleSuggestService;
+
+    @Autowired
+    private FavoriteFilmService favoriteFilmService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void whenQueryHasAccentsPluralsOrTypos_thenFilmsAreFound() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("La canción del zepelín",
+                "A musical journey aboard an airship", 1999, "+7"));
+
+        assertThat(ids(filmSearchService.search("CANCIONES zepelin", null))).containsExactly(film.id());
+        assertThat(ids(filmSearchService.search("zeppelin", null))).containsExactly(film.id());
+        assertThat(ids(filmSearchService.search("airships", null))).containsExactly(film.id());
+        assertThat(filmSearchService.search("la del", null)).isEmpty();
+    }
+
+    @Test
+    public void whenFilmsChange_thenTheIndexIsUpdated() {
+        FilmDTO updated = filmService.save(new CreateFilmRequest("Quimera dorada", "Synopsis", 2001, "+12"));
+        FilmDTO deleted = filmService.save(new CreateFilmRequest("Quimera plateada", "Synopsis", 2001, "+12"));
+
+        filmService.update(updated.id(), new FilmSimpleDTO(updated.id(), "Esfinge dorada", "Synopsis", 2001, "+12"));
+        filmService.delete(deleted.id());
+
+        assertThat(filmSearchService.search("quimera", null)).isEmpty();
+        assertThat(ids(filmSearchService.search("esfinge", null))).containsExactly(updated.id());
+    }
+
+    @Test
+    public void whenIndexIsRebuilt_thenItFindsTheSameFilms() {
+        FilmDTO first = filmService.save(new CreateFilmRequest("Basilisco", "Basilisco de piedra", 2010, "+16"));
+        FilmDTO second = filmService.save(new CreateFilmRequest("Piedra lunar", "Un basilisco aparece", 2011, "+16"));
+        List<Long> before = ids(filmSearchService.search("basilisco", null));
+
+        assertThat(filmSearchService.rebuild()).isGreaterThanOrEqualTo(2);
+
+        assertThat(before).containsExactly(first.id(), second.id());
+        assertThat(ids(filmSearchService.search("basilisco", null))).isEqualTo(before);
+    }
+
+    @Test
+    public void whenFilmsAreLikedRenamedOrDeleted_thenSuggestionsFollow() {
+        User user = userRepository.save(new User("testuser", "testuser@example.com"));
+        try {
+            FilmDTO first = filmService.save(new CreateFilmRequest("Ámbar", "Synopsis", 2010, "+16"));
+            FilmDTO second = filmService.save(new CreateFilmRequest("El ambarino", "Synopsis", 2010, "+16"));
+            FilmDTO renamed = filmService.save(new CreateFilmRequest("Ambrosía", "Synopsis", 2010, "+16"));
+            favoriteFilmService.addToFavorites(second.id());
+
+            assertThat(titleSuggestService.suggest("amb", null)).extracting(FilmSuggestion::id)
+                    .containsExactly(second.id(), first.id(), renamed.id());
+            assertThat(titleSuggestService.suggest("AMBA", 1)).extracting(FilmSuggestion::title)
+                    .containsExactly("El ambarino");
+
+            filmService.update(renamed.id(), new FilmSimpleDTO(renamed.id(), "Néctar", "Synopsis", 2010, "+16"));
+            filmService.delete(second.id());
+
+            assertThat(titleSuggestService.suggest("amb", null)).extracting(FilmSuggestion::id).containsExactly(first.id());
+            assertThat(titleSuggestService.suggest("nec", null)).extracting(FilmSuggestion::id).containsExactly(renamed.id());
+        } finally {
+            userRepository.delete(user);
+        }
+    }
+
+    private static List<Long> ids(List<FilmSummaryDTO> films) {
+        return films.stream().map(FilmSummaryDTO::id).toList();
+    }
+}
@@ -0,0 +1,128 @@
+package es.codeurjc.web.nitflex.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.model.Film;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.GroupCommitService;
+import es.codeurjc.web.nitflex.service.exceptions.FilmNotFoundException;
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:groupcommitdb",
+        "nitflex.group-commit.enabled=true",
+        "nitflex.group-commit.max-wait=20ms" })
+public class GroupCommitIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private GroupCommitService groupCommitService;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        userRepository.save(new User("testuser", "testuser@example.com"));
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void whenFilmsAreCreatedConcurrently_thenEachCallerGetsItsFilm() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        List<Future<FilmDTO>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS * 4; i++) {
+            CreateFilmRequest request = new CreateFilmRequest("Grouped " + i, "Synopsis", 2000 + i, "+12");
+            results.add(executor.submit(() -> groupCommitService.saveFilm(request)));
+        }
+        for (Future<FilmDTO> result : results) {
+            result.get();
+        }
+
+        // Concurrent creations share transactions
+        assertThat(statistics.getSuccessfulTransactionCount()).isLessThan(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            FilmDTO film = results.get(i).get();
+            assertThat(film.title()).isEqualTo("Grouped " + i);
+            assertThat(filmRepository.findById(film.id()).map(Film::getReleaseYear)).contains(2000 + i);
+        }
+        assertThat(results.stream().map(this::id).distinct()).hasSize(results.size());
+    }
+
+    @Test
+    public void whenOneReviewOfABatchIsForAMissingFilm_thenOnlyThatOneFails() throws Exception {
+        FilmDTO film = groupCommitService.saveFilm(new CreateFilmRequest("Reviewed", "Synopsis", 2020, "+12"));
+
+        List<Future<FilmDTO>> reviews = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int score = i % 11;
+            reviews.add(executor.submit(() -> groupCommitService.addReview(film.id(), new CreateReviewRequest("Review", score))));
+        }
+        Future<FilmDTO> missing = executor.submit(
+                () -> groupCommitService.addReview(Long.MAX_VALUE, new CreateReviewRequest("Review", 5)));
+
+        for (Future<FilmDTO> review : reviews) {
+            review.get();
+        }
+        assertThatThrownBy(missing::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(FilmNotFoundException.class);
+        Film reviewed = filmRepository.findById(film.id()).orElseThrow();
+        assertThat(reviewed.getReviewCount()).isEqualTo(THREADS);
+        assertThat(reviewed.getScoreSum()).isEqualTo(scoreSum(THREADS));
+    }
+
+    private long scoreSum(int reviews) {
+        long sum = 0;
+        for (int i = 0; i < reviews; i++) {
+            sum += i % 11;
+        }
+        return sum;
+    }
+
+    private long id(Future<FilmDTO> result) {
+        try {
+            return result.get().id();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
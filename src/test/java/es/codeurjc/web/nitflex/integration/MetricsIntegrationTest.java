@@ -0,0 +1,58 @@
+package es.codeurjc.web.nitflex.integration;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.service.FilmService;
+
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.datasource.url=jdbc:h2:mem:metricsdb")
+public class MetricsIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Test
+    public void whenFilmIsRequested_thenItsMetricsAreScraped() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Metrics", "A film to be measured", 2020, "+12"));
+        try {
+            // The first request loads the film, the second one is answered by the cache
+            for (int i = 0; i < 2; i++) {
+                given().baseUri("http://localhost").port(port).basePath("/api")
+                        .get("/films/{id}", film.id())
+                        .then().statusCode(200);
+            }
+
+            String metrics = given().baseUri("http://localhost").port(managementPort).basePath("/actuator")
+                    .get("/prometheus")
+                    .then().statusCode(200)
+                    .extract().asString();
+
+            assertThat(metrics)
+                    .contains("http_server_requests_seconds_bucket{")
+                    .contains("nitflex_http_sql_statements_count{method=\"GET\",uri=\"/api/films/{id}\"} 2")
+                    .contains("nitflex_http_sql_rows_sum{method=\"GET\",uri=\"/api/films/{id}\"}")
+                    .containsPattern("nitflex_service_seconds\\{class=\"es.codeurjc.web.nitflex.service.FilmService\".*method=\"save\",quantile=\"0.95\"")
+                    .containsPattern("cache_gets_total\\{cache=\"filmDetail\",.*result=\"hit\"")
+                    .contains("hikaricp_connections_acquire_seconds_count{")
+                    .contains("hibernate_entities_loads_total{");
+        } finally {
+            filmService.delete(film.id());
+        }
+    }
+}
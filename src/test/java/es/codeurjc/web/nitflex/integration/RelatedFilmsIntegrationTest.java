@@ -0,0 +1,77 @@
+package es.codeurjc.web.nitflex.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.FavoriteFilmService;
+import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.UserService;
+import es.codeurjc.web.nitflex.service.exceptions.FilmNotFoundException;
+import es.codeurjc.web.nitflex.service.recommendation.RelatedFilmsService;
+
+@SpringBootTest
+public class RelatedFilmsIntegrationTest {
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private FavoriteFilmService favoriteFilmService;
+
+    @Autowired
+    private RelatedFilmsService relatedFilmsService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void whenFavoritesChange_thenRelatedFilmsFollow() {
+        User user = userRepository.save(new User("testuser", "testuser@example.com"));
+        FilmDTO first = filmService.save(new CreateFilmRequest("Related first", "Synopsis", 2020, "+12"));
+        FilmDTO second = filmService.save(new CreateFilmRequest("Related second", "Synopsis", 2020, "+12"));
+        try {
+            assertThat(relatedFilmsService.findRelated(first.id(), null)).isEmpty();
+
+            favoriteFilmService.addToFavorites(first.id());
+            favoriteFilmService.addToFavorites(second.id());
+            // Only liked by the same user, so the most related film
+            assertThat(relatedFilmsService.findRelated(first.id(), 1)).extracting(FilmSummaryDTO::id)
+                    .containsExactly(second.id());
+
+            relatedFilmsService.rebuild();
+            assertThat(relatedFilmsService.findRelated(first.id(), 1)).extracting(FilmSummaryDTO::id)
+                    .containsExactly(second.id());
+
+            favoriteFilmService.removeFromFavorites(second.id());
+            assertThat(relatedFilmsService.findRelated(first.id(), null)).extracting(FilmSummaryDTO::id)
+                    .doesNotContain(second.id());
+            assertThat(relatedFilmsService.findRelated(second.id(), null)).isEmpty();
+
+            favoriteFilmService.addToFavorites(second.id());
+            userService.deleteUser(user.getId());
+            assertThat(relatedFilmsService.findRelated(first.id(), null)).extracting(FilmSummaryDTO::id)
+                    .doesNotContain(second.id());
+        } finally {
+            if (userRepository.existsById(user.getId())) {
+                userService.deleteUser(user.getId());
+            }
+            filmService.delete(first.id());
+            filmService.delete(second.id());
+        }
+
+        assertThatThrownBy(() -> relatedFilmsService.findRelated(first.id(), null))
+                .isInstanceOf(FilmNotFoundException.class);
+    }
+}
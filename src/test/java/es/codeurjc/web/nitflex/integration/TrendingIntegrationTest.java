@@ -0,0 +1,76 @@
+package es.codeurjc.web.nitflex.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSummaryDTO;
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.TrendingScoreRepository;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.FavoriteFilmService;
+import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.ReviewService;
+import es.codeurjc.web.nitflex.service.UserService;
+import es.codeurjc.web.nitflex.service.trending.TrendingService;
+
+@SpringBootTest
+public class TrendingIntegrationTest {
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private FavoriteFilmService favoriteFilmService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private TrendingScoreRepository trendingScoreRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void whenFilmsAreReviewedOrLiked_thenTheyTrendAndAreCheckpointed() {
+        User user = userRepository.save(new User("testuser", "testuser@example.com"));
+        FilmDTO reviewed = filmService.save(new CreateFilmRequest("Trending reviewed", "Synopsis", 2020, "+12"));
+        FilmDTO liked = filmService.save(new CreateFilmRequest("Trending liked", "Synopsis", 2020, "+12"));
+        try {
+            trendingService.load();
+            reviewService.addReview(reviewed.id(), new CreateReviewRequest("Great", 9));
+            favoriteFilmService.addToFavorites(reviewed.id());
+            favoriteFilmService.addToFavorites(liked.id());
+
+            assertThat(trendingService.getScore(reviewed.id())).isCloseTo(3, within(0.01));
+            assertThat(trendingService.findTrending(100)).extracting(FilmSummaryDTO::id)
+                    .containsSubsequence(reviewed.id(), liked.id());
+
+            trendingService.checkpoint();
+            assertThat(trendingScoreRepository.findById(reviewed.id())).isPresent();
+            assertThat(trendingScoreRepository.findById(liked.id())).isPresent();
+
+            filmService.delete(liked.id());
+            trendingService.checkpoint();
+            assertThat(trendingService.findTrending(100)).extracting(FilmSummaryDTO::id).doesNotContain(liked.id());
+            assertThat(trendingScoreRepository.findById(liked.id())).isEmpty();
+        } finally {
+            userService.deleteUser(user.getId());
+            filmService.delete(reviewed.id());
+            trendingService.checkpoint();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package es.codeurjc.web.nitflex.integration;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.domain.Limit;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.UserComponent;
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class UserComponentIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserComponent userComponent;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User testUser;
+
+    @BeforeEach
+    public void setUp() {
+        testUser = userRepository.save(new User("testuser", "testuser@example.com"));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        userRepository.delete(testUser);
+    }
+
+    @Test
+    public void whenCurrentUserIsRequestedSeveralTimesInARequest_thenItIsReadOnce() {
+        long firstUserId = userRepository.findSimpleUsers(Limit.of(1)).get(0).id();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        userComponent.getCurrentUser();
+        userComponent.getCurrentUser();
+        long userId = userComponent.getCurrentUserId();
+
+        assertThat(userId).isEqualTo(firstUserId);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenErrorPageIsRendered_thenHeaderShowsTheCurrentUser() {
+        given().port(port).accept("text/html")
+                .when().get("/missing-page")
+                .then().statusCode(404)
+                .body(containsString("testuser's Favorites"));
+    }
+}
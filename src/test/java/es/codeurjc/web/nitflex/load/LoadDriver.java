@@ -0,0 +1,219 @@
+package es.codeurjc.web.nitflex.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Replays a {@link LoadTestPlan} against a server with an open model: the scenarios start
+ * at the arrival rate of each phase, each one on its own virtual thread, whether or not
+ * the previous ones have finished. The latency of every request is recorded in an
+ * HdrHistogram. As in artillery, a scenario fails and stops at its first error or unmet
+ * expectation.
+ */
+class LoadDriver {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{\\s*(\\w+)\\s*}}");
+
+    private static final Pattern PATH_SEGMENT = Pattern.compile("\\.(\\w+)|\\[(\\d+)]");
+
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private final String target;
+
+    private final LoadTestPlan plan;
+
+    private final HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Microseconds, from 1 us to 1 minute with 3 significant digits
+    private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+
+    private final LongAdder scenarios = new LongAdder();
+
+    private final LongAdder failedScenarios = new LongAdder();
+
+    private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+
+    private final Queue<String> errors = new ConcurrentLinkedQueue<>();
+
+    LoadDriver(String target, LoadTestPlan plan) {
+        this.target = target;
+        this.plan = plan;
+    }
+
+    LoadReport run() throws InterruptedException {
+        long start = System.nanoTime();
+        long phaseStart = start;
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (LoadTestPlan.Phase phase : plan.phases()) {
+                for (int second = 0; second < phase.duration(); second++) {
+                    int rate = phase.rampTo() == null ? phase.arrivalRate()
+                            : (int) Math.round(phase.arrivalRate()
+                                    + (phase.rampTo() - phase.arrivalRate()) * (double) second / phase.duration());
+                    for (int i = 0; i < rate; i++) {
+                        sleepUntil(phaseStart + TimeUnit.SECONDS.toNanos(second) + TimeUnit.SECONDS.toNanos(1) * i / rate);
+                        users.submit(this::runScenario);
+                    }
+                }
+                phaseStart += TimeUnit.SECONDS.toNanos(phase.duration() + phase.pause());
+                sleepUntil(phaseStart);
+            }
+        }
+        Map<Integer, Long> codes = new TreeMap<>();
+        statusCodes.forEach((code, count) -> codes.put(code, count.sum()));
+        return new LoadReport(scenarios.sum(), failedScenarios.sum(), codes, latencies.copy(),
+                (System.nanoTime() - start) / 1e9, List.copyOf(errors));
+    }
+
+    private void runScenario() {
+        scenarios.increment();
+        LoadTestPlan.Scenario scenario = pickScenario();
+        List<String> row = plan.payload().get(ThreadLocalRandom.current().nextInt(plan.payload().size()));
+        Map<String, String> variables = new HashMap<>();
+        for (int i = 0; i < plan.payloadFields().size() && i < row.size(); i++) {
+            variables.put(plan.payloadFields().get(i), row.get(i));
+        }
+        try {
+            for (LoadTestPlan.Step step : scenario.steps()) {
+                runStep(step, variables);
+            }
+        } catch (IOException | RuntimeException e) {
+            failedScenarios.increment();
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(scenario.name() + ": " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runStep(LoadTestPlan.Step step, Map<String, String> variables) throws IOException, InterruptedException {
+        String url = fill(step.url(), variables);
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(target + url));
+        if (step.json() != null) {
+            Map<String, Object> body = new HashMap<>();
+            step.json().forEach((key, value) -> body.put(key, value instanceof String text ? fill(text, variables) : value));
+            request.header("Content-Type", "application/json")
+                    .method(step.method(), HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        } else {
+            request.method(step.method(), HttpRequest.BodyPublishers.noBody());
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        latencies.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+        statusCodes.computeIfAbsent(response.statusCode(), code -> new LongAdder()).increment();
+
+        String description = step.method() + " " + url;
+        if (step.expectedStatus() != null && response.statusCode() != step.expectedStatus()) {
+            throw new IllegalStateException(description + " returned " + response.statusCode() + " instead of " + step.expectedStatus());
+        }
+        if (step.expectedContentType() != null && !response.headers().firstValue("Content-Type").orElse("")
+                .startsWith(step.expectedContentType())) {
+            throw new IllegalStateException(description + " did not return " + step.expectedContentType());
+        }
+        if (!step.captures().isEmpty()) {
+            JsonNode json = objectMapper.readTree(response.body());
+            step.captures().forEach((path, variable) -> variables.put(variable, read(json, path, description)));
+        }
+    }
+
+    private LoadTestPlan.Scenario pickScenario() {
+        int totalWeight = plan.scenarios().stream().mapToInt(LoadTestPlan.Scenario::weight).sum();
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (LoadTestPlan.Scenario scenario : plan.scenarios()) {
+            pick -= scenario.weight();
+            if (pick < 0) {
+                return scenario;
+            }
+        }
+        throw new IllegalStateException("There are no scenarios");
+    }
+
+    private static String fill(String template, Map<String, String> variables) {
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        StringBuilder filled = new StringBuilder();
+        while (matcher.find()) {
+            String value = variables.get(matcher.group(1));
+            if (value == null) {
+                throw new IllegalStateException("Undefined variable " + matcher.group(1));
+            }
+            matcher.appendReplacement(filled, Matcher.quoteReplacement(value));
+        }
+        return matcher.appendTail(filled).toString();
+    }
+
+    /**
+     * Reads a JSON path made of fields and array indexes, such as "$[0].id"
+     */
+    private static String read(JsonNode json, String path, String description) {
+        JsonNode node = json;
+        Matcher matcher = PATH_SEGMENT.matcher(path.substring(1));
+        while (matcher.find()) {
+            node = matcher.group(1) != null ? node.path(matcher.group(1)) : node.path(Integer.parseInt(matcher.group(2)));
+        }
+        if (node.isMissingNode() || node.isNull()) {
+            throw new IllegalStateException(description + " returned no " + path);
+        }
+        return node.asText();
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining = nanoTime - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    /**
+     * @param elapsedSeconds from the first arrival until the last scenario finished
+     */
+    record LoadReport(long scenarios, long failedScenarios, Map<Integer, Long> statusCodes, Histogram latencies,
+            double elapsedSeconds, List<String> errors) {
+
+        /**
+         * @return the percentage of failed scenarios, as artillery's maxErrorRate
+         */
+        double errorRate() {
+            return scenarios == 0 ? 0 : 100.0 * failedScenarios / scenarios;
+        }
+
+        double percentileMillis(double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d scenarios (%d failed, %.2f%%), %d requests in %.1f s (%.1f req/s), status codes %s%n"
+                    + "latency ms: p50 %.1f, p95 %.1f, p99 %.1f, max %.1f%s",
+                    scenarios, failedScenarios, errorRate(), latencies.getTotalCount(), elapsedSeconds,
+                    latencies.getTotalCount() / elapsedSeconds, statusCodes, percentileMillis(50), percentileMillis(95),
+                    percentileMillis(99), latencies.getMaxValue() / 1000.0,
+                    errors.isEmpty() ? "" : "\nfirst errors: " + String.join("\n  ", errors));
+        }
+    }
+}
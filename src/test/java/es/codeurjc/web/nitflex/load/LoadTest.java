@@ -0,0 +1,59 @@
+package es.codeurjc.web.nitflex.load;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.service.FilmService;
+
+/**
+ * Runs the scenarios of load-test.yml against the application on a random port and
+ * fails if the error rate or the 95th percentile of the latency exceed the budgets of the
+ * environment. It is only run on demand, as it takes as long as the phases:
+ *
+ * <pre>
+ * mvn test -Dtest=LoadTest -Dnitflex.load-test=true [-Dnitflex.load-test.environment=staging]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "nitflex.load-test", matches = "true")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "spring.datasource.url=jdbc:h2:mem:loadtestdb")
+public class LoadTest {
+
+    private static final String ENVIRONMENT = System.getProperty("nitflex.load-test.environment", "local");
+
+    // The first scenario reads the first film of the catalog, so it cannot be empty
+    private static final int SEEDED_FILMS = 10;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Test
+    public void meetsTheBudgets() throws Exception {
+        LoadTestPlan plan = LoadTestPlan.read(Path.of("load-test.yml"), ENVIRONMENT);
+        for (List<String> row : plan.payload().subList(0, Math.min(SEEDED_FILMS, plan.payload().size()))) {
+            filmService.save(new CreateFilmRequest(row.get(0), row.get(1), Integer.parseInt(row.get(2)), row.get(3)));
+        }
+
+        LoadDriver.LoadReport report = new LoadDriver("http://localhost:" + port, plan).run();
+        System.out.println("Load test (" + ENVIRONMENT + "): " + report);
+
+        assertTrue(report.errorRate() <= plan.maxErrorRate(),
+                "Error rate " + report.errorRate() + "% over " + plan.maxErrorRate() + "%");
+        if (plan.maxP95Millis() != null) {
+            assertTrue(report.percentileMillis(95) <= plan.maxP95Millis(),
+                    "p95 " + report.percentileMillis(95) + " ms over " + plan.maxP95Millis() + " ms");
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package es.codeurjc.web.nitflex.load;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * The part of an artillery script that the {@link LoadDriver} replays: the phases and
+ * budgets of one environment, the CSV payload and the weighted scenarios, whose steps
+ * are GET, POST or DELETE requests with 'expect' and 'capture' clauses.
+ */
+record LoadTestPlan(List<Phase> phases, double maxErrorRate, Double maxP95Millis, List<String> payloadFields,
+        List<List<String>> payload, List<Scenario> scenarios) {
+
+    /**
+     * @param arrivalRate new scenarios per second at the start of the phase
+     * @param rampTo new scenarios per second at its end, or null if the rate is constant
+     * @param pause seconds without new scenarios, instead of a duration
+     */
+    record Phase(String name, int duration, int arrivalRate, Integer rampTo, int pause) {}
+
+    record Scenario(String name, int weight, List<Step> steps) {}
+
+    /**
+     * @param json the body, with '{{ variable }}' placeholders, or null
+     * @param captures the variables to read from the JSON response, by their path
+     */
+    record Step(String method, String url, Map<String, Object> json, Integer expectedStatus, String expectedContentType,
+            Map<String, String> captures) {}
+
+    @SuppressWarnings("unchecked")
+    static LoadTestPlan read(Path script, String environmentName) throws IOException {
+        Map<String, Object> root;
+        try (Reader reader = Files.newBufferedReader(script, StandardCharsets.UTF_8)) {
+            root = new Yaml().load(reader);
+        }
+        Map<String, Object> config = (Map<String, Object>) root.get("config");
+        Map<String, Object> environment = (Map<String, Object>) ((Map<String, Object>) config.get("environments"))
+                .get(environmentName);
+        if (environment == null) {
+            throw new IllegalArgumentException("Unknown environment: " + environmentName);
+        }
+
+        List<Phase> phases = new ArrayList<>();
+        for (Map<String, Object> phase : (List<Map<String, Object>>) environment.get("phases")) {
+            phases.add(new Phase((String) phase.get("name"), intValue(phase, "duration", 0),
+                    intValue(phase, "arrivalRate", 0), (Integer) phase.get("rampTo"), intValue(phase, "pause", 0)));
+        }
+
+        Map<String, Object> ensure = (Map<String, Object>) environment.getOrDefault("ensure", Map.of());
+        double maxErrorRate = ((Number) ensure.getOrDefault("maxErrorRate", 100)).doubleValue();
+        Map<String, Object> responseTime = (Map<String, Object>) ((Map<String, Object>) ensure
+                .getOrDefault("http", Map.of())).getOrDefault("response_time", Map.of());
+        Double maxP95 = responseTime.containsKey("p95") ? ((Number) responseTime.get("p95")).doubleValue() : null;
+
+        Map<String, Object> payloadConfig = (Map<String, Object>) config.get("payload");
+        List<String> payloadFields = (List<String>) payloadConfig.get("fields");
+        List<List<String>> payload = new ArrayList<>();
+        for (String line : Files.readAllLines(script.resolveSibling((String) payloadConfig.get("path")), StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                payload.add(List.of(line.split(",", payloadFields.size())));
+            }
+        }
+
+        List<Scenario> scenarios = new ArrayList<>();
+        for (Map<String, Object> scenario : (List<Map<String, Object>>) root.get("scenarios")) {
+            List<Step> steps = new ArrayList<>();
+            for (Map<String, Object> step : (List<Map<String, Object>>) scenario.get("flow")) {
+                Map.Entry<String, Object> request = step.entrySet().iterator().next();
+                steps.add(step(request.getKey(), (Map<String, Object>) request.getValue()));
+            }
+            scenarios.add(new Scenario((String) scenario.get("name"), intValue(scenario, "weight", 1), steps));
+        }
+        return new LoadTestPlan(phases, maxErrorRate, maxP95, payloadFields, payload, scenarios);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Step step(String method, Map<String, Object> request) {
+        Integer expectedStatus = null;
+        String expectedContentType = null;
+        for (Map<String, Object> expectation : (List<Map<String, Object>>) request.getOrDefault("expect", List.of())) {
+            if (expectation.containsKey("statusCode")) {
+                expectedStatus = (Integer) expectation.get("statusCode");
+            }
+            if (expectation.containsKey("contentType")) {
+                expectedContentType = (String) expectation.get("contentType");
+            }
+        }
+        Map<String, String> captures = new LinkedHashMap<>();
+        Object capture = request.get("capture");
+        for (Map<String, Object> variable : capture instanceof List<?> list ? (List<Map<String, Object>>) list
+                : capture == null ? List.<Map<String, Object>>of() : List.of((Map<String, Object>) capture)) {
+            captures.put((String) variable.get("json"), (String) variable.get("as"));
+        }
+        return new Step(method.toUpperCase(), (String) request.get("url"), (Map<String, Object>) request.get("json"),
+                expectedStatus, expectedContentType, captures);
+    }
+
+    private static int intValue(Map<String, Object> map, String key, int defaultValue) {
+        Object value = map.get(key);
+        return value == null ? defaultValue : ((Number) value).intValue();
+    }
+}
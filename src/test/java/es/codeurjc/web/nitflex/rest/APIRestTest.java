@@ -3,6 +3,9 @@ package es.codeurjc.web.nitflex.rest;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,10 +13,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import es.codeurjc.web.nitflex.model.User;
 import es.codeurjc.web.nitflex.repository.UserRepository;
 
 import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -206,4 +213,368 @@ public void whenCreateAndEditFilm_thenTitleIsUpdated() {
             .body("releaseYear", equalTo(2023))
             .body("ageRating", equalTo("+7"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void whenListFilmsWithCursor_thenPagesAreOrderedById() {
+        // Create three films to walk through
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            ids.add(given()
+                    .contentType(ContentType.JSON)
+                    .body("{\"title\": \"Paged film " + i + "\", \"releaseYear\": 2020, \"ageRating\": \"+7\"}")
+                    .when()
+                    .post("/films/")
+                    .then()
+                    .statusCode(201)
+                    .extract()
+                    .path("id"));
+        }
+
+        // First page starts right after the cursor and announces the next one
+        String nextCursor = given()
+                .queryParam("after", ids.get(0) - 1)
+                .queryParam("limit", 2)
+                .when()
+                .get("/films/")
+                .then()
+                .statusCode(200)
+                .body("size()", equalTo(2))
+                .body("[0].id", equalTo(ids.get(0)))
+                .body("[1].id", equalTo(ids.get(1)))
+                .header("X-Next-Cursor", equalTo(String.valueOf(ids.get(1))))
+                .header("Link", containsString("after=" + ids.get(1)))
+                .extract()
+                .header("X-Next-Cursor");
+
+        // Second page continues from the cursor
+        given()
+                .queryParam("after", nextCursor)
+                .queryParam("limit", 2)
+                .when()
+                .get("/films/")
+                .then()
+                .statusCode(200)
+                .body("[0].id", equalTo(ids.get(2)));
+    }
+
+    @Test
+    public void whenListFilmSummaries_thenOnlySummaryFieldsAreReturned() {
+        Integer filmId = given()
+                .contentType(ContentType.JSON)
+                .body("{\"title\": \"Summary film\", \"synopsis\": \"A long synopsis\", \"releaseYear\": 1999, \"ageRating\": \"+12\"}")
+                .when()
+                .post("/films/")
+                .then()
+                .statusCode(201)
+                .extract()
+                .path("id");
+
+        given()
+                .queryParam("view", "summary")
+                .queryParam("after", filmId - 1)
+                .queryParam("limit", 1)
+                .when()
+                .get("/films/")
+                .then()
+                .statusCode(200)
+                .body("[0].id", equalTo(filmId))
+                .body("[0].title", equalTo("Summary film"))
+                .body("[0].releaseYear", equalTo(1999))
+                .body("[0].ageRating", equalTo("+12"))
+                .body("[0].likeCount", equalTo(0))
+                .body("[0]", not(hasKey("synopsis")))
+                .body("[0]", not(hasKey("reviews")));
+    }
+
+    @Test
+    public void whenFavoritesAreUpdatedInBatch_thenOnlyChangedFilmsAreReported() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            ids.add(given()
+                    .contentType(ContentType.JSON)
+                    .body("{\"title\": \"Favorite film " + i + "\", \"releaseYear\": 2020, \"ageRating\": \"+7\"}")
+                    .when()
+                    .post("/films/")
+                    .then()
+                    .statusCode(201)
+                    .extract()
+                    .path("id"));
+        }
+
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"add\": [" + ids.get(0) + ", " + ids.get(1) + "]}")
+                .when()
+                .post("/users/me/favorites")
+                .then()
+                .statusCode(200)
+                .body("added", contains(ids.get(0), ids.get(1)))
+                .body("removed", empty());
+
+        // The first film is already a favorite, so only the removal is reported
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"add\": [" + ids.get(0) + "], \"remove\": [" + ids.get(1) + "]}")
+                .when()
+                .post("/users/me/favorites")
+                .then()
+                .statusCode(200)
+                .body("added", empty())
+                .body("removed", contains(ids.get(1)));
+
+        given().when().get("/films/{id}", ids.get(0)).then().body("usersThatLiked.size()", equalTo(1));
+        given().when().get("/films/{id}", ids.get(1)).then().body("usersThatLiked.size()", equalTo(0));
+    }
+
+    @Test
+    public void whenFavoritesBatchHasUnknownFilm_thenNothingIsChanged() {
+        Integer filmId = given()
+                .contentType(ContentType.JSON)
+                .body("{\"title\": \"Favorite film\", \"releaseYear\": 2020, \"ageRating\": \"+7\"}")
+                .when()
+                .post("/films/")
+                .then()
+                .statusCode(201)
+                .extract()
+                .path("id");
+
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"add\": [" + filmId + ", " + Integer.MAX_VALUE + "]}")
+                .when()
+                .post("/users/me/favorites")
+                .then()
+                .statusCode(404);
+
+        given().when().get("/films/{id}", filmId).then().body("usersThatLiked.size()", equalTo(0));
+    }
+
+    @Test
+    public void whenFavoritesBatchHasNullFilmId_thenItIsABadRequest() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"add\": [null]}")
+                .when()
+                .post("/users/me/favorites")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    public void whenListReviewsWithCursor_thenPagesGoFromNewestToOldest() {
+        Integer filmId = createFilmWithReviews("Reviewed film", 3);
+
+        String nextCursor = given()
+                .queryParam("limit", 2)
+                .when()
+                .get("/films/{id}/reviews", filmId)
+                .then()
+                .statusCode(200)
+                .body("text", contains("Review 3", "Review 2"))
+                .header("Link", containsString("cursor="))
+                .extract()
+                .header("X-Next-Cursor");
+
+        given()
+                .queryParam("cursor", nextCursor)
+                .queryParam("limit", 2)
+                .when()
+                .get("/films/{id}/reviews", filmId)
+                .then()
+                .statusCode(200)
+                .body("text", contains("Review 1"))
+                .header("X-Next-Cursor", nullValue());
+
+        given().when().get("/films/{id}/reviews", Integer.MAX_VALUE).then().statusCode(404);
+    }
+
+    @Test
+    public void whenGetFilmWithNewestReviews_thenOnlyThoseAreEmbeddedWithTheTotalCount() {
+        Integer filmId = createFilmWithReviews("Reviewed film", 3);
+
+        given()
+                .queryParam("reviews", 1)
+                .when()
+                .get("/films/{id}", filmId)
+                .then()
+                .statusCode(200)
+                .body("reviews.text", contains("Review 3"))
+                .body("reviewCount", equalTo(3))
+                .body("averageScore", equalTo(2.0f));
+    }
+
+    @Test
+    public void whenImportCsv_thenValidRowsAreInsertedAndTheRestReported() {
+        given()
+                .contentType("text/csv")
+                .body("""
+                        title,synopsis,releaseYear,ageRating
+                        Imported film,"A synopsis, with a comma",2020,+12
+                        Bad year,Synopsis,last year,+12
+                        """)
+                .when()
+                .post("/films/import")
+                .then()
+                .statusCode(200)
+                .body("imported", equalTo(1))
+                .body("rejected", equalTo(1))
+                .body("rejectedRows[0].line", equalTo(3));
+
+        given()
+                .queryParam("view", "summary")
+                .queryParam("unpaged", true)
+                .when()
+                .get("/films/")
+                .then()
+                .body("title", hasItem("Imported film"));
+    }
+
+    @Test
+    public void whenExportFilms_thenEachFilmIsAJsonLine() throws Exception {
+        Integer filmId = createFilmWithReviews("Exported film", 2);
+
+        String export = given()
+                .when()
+                .get("/films/export")
+                .then()
+                .statusCode(200)
+                .contentType("application/x-ndjson")
+                .extract()
+                .asString();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<JsonNode> films = new ArrayList<>();
+        for (String line : export.split("\n")) {
+            films.add(objectMapper.readTree(line));
+        }
+        JsonNode exported = films.stream()
+                .filter(film -> film.get("id").asInt() == filmId)
+                .findFirst()
+                .orElseThrow();
+        assertThat(exported.get("title").asText()).isEqualTo("Exported film");
+        assertThat(exported.get("reviewCount").asInt()).isEqualTo(2);
+        assertThat(films).extracting(film -> film.get("id").asLong()).isSorted();
+    }
+
+    @Test
+    public void whenDeleteSeveralFilms_thenNoneIsAvailable() {
+        Integer first = createFilmWithReviews("Deleted film 1", 1);
+        Integer second = createFilmWithReviews("Deleted film 2", 0);
+
+        given()
+                .queryParam("ids", first + "," + second)
+                .when()
+                .delete("/films")
+                .then()
+                .statusCode(204);
+
+        given().when().get("/films/{id}", first).then().statusCode(404);
+        given().when().get("/films/{id}", second).then().statusCode(404);
+        given().when().get("/films/{id}/reviews", first).then().statusCode(404);
+    }
+
+    @Test
+    public void whenSearchFilms_thenBestMatchesAreReturnedFirst() {
+        Integer inTitle = createFilmWithReviews("Kraken nocturno", 0);
+        Integer inSynopsis = given()
+                .contentType(ContentType.JSON)
+                .body("{\"title\": \"Mar abierto\", \"synopsis\": \"Un kraken ataca el barco\", \"releaseYear\": 2020, \"ageRating\": \"+7\"}")
+                .when()
+                .post("/films/")
+                .then()
+                .statusCode(201)
+                .extract()
+                .path("id");
+
+        given()
+                .queryParam("q", "KRAKENS")
+                .when()
+                .get("/films/search")
+                .then()
+                .statusCode(200)
+                .body("id", contains(inTitle, inSynopsis))
+                .body("[0].title", equalTo("Kraken nocturno"));
+
+        given().queryParam("q", " ").when().get("/films/search").then().statusCode(400);
+    }
+
+    @Test
+    public void whenFilterFilmsByAgeRatingAndYears_thenPagesAndFacetsAreReturned() {
+        Integer first = createFilm("Filtered 1", 1851, "+7");
+        Integer second = createFilm("Filtered 2", 1852, "+7");
+        createFilm("Filtered 3", 1852, "+18");
+
+        String cursor = given()
+                .queryParam("ageRating", "+7")
+                .queryParam("fromYear", 1851)
+                .queryParam("toYear", 1853)
+                .queryParam("limit", 1)
+                .when()
+                .get("/films")
+                .then()
+                .statusCode(200)
+                .body("films.id", contains(first))
+                .body("facets.ageRatings.'+7'", equalTo(2))
+                .body("facets.ageRatings.'+18'", equalTo(1))
+                .body("facets.ageRatings.'+0'", equalTo(0))
+                .body("facets.releaseDecades.'1850-1859'", equalTo(2))
+                .extract()
+                .header("X-Next-Cursor");
+
+        given()
+                .queryParam("ageRating", "+7")
+                .queryParam("fromYear", 1851)
+                .queryParam("toYear", 1853)
+                .queryParam("limit", 1)
+                .queryParam("after", cursor)
+                .when()
+                .get("/films")
+                .then()
+                .statusCode(200)
+                .body("films.id", contains(second))
+                .header("X-Next-Cursor", nullValue());
+
+        given().queryParam("ageRating", "+13").when().get("/films").then().statusCode(400);
+        given()
+                .contentType(ContentType.JSON)
+                .body("{\"title\": \"Unrated\", \"releaseYear\": 2020, \"ageRating\": \"+13\"}")
+                .when()
+                .post("/films/")
+                .then()
+                .statusCode(400);
+    }
+
+    private Integer createFilm(String title, int releaseYear, String ageRating) {
+        return given()
+                .contentType(ContentType.JSON)
+                .body("{\"title\": \"" + title + "\", \"releaseYear\": " + releaseYear + ", \"ageRating\": \"" + ageRating + "\"}")
+                .when()
+                .post("/films/")
+                .then()
+                .statusCode(201)
+                .extract()
+                .path("id");
+    }
+
+    private Integer createFilmWithReviews(String title, int reviews) {
+        Integer filmId = given()
+                .contentType(ContentType.JSON)
+                .body("{\"title\": \"" + title + "\", \"releaseYear\": 2020, \"ageRating\": \"+7\"}")
+                .when()
+                .post("/films/")
+                .then()
+                .statusCode(201)
+                .extract()
+                .path("id");
+        for (int i = 1; i <= reviews; i++) {
+            given()
+                    .contentType(ContentType.JSON)
+                    .body("{\"text\": \"Review " + i + "\", \"score\": " + i + "}")
+                    .when()
+                    .post("/films/{id}/reviews/", filmId)
+                    .then()
+                    .statusCode(201);
+        }
+        return filmId;
+    }
+}
@@ -0,0 +1,107 @@
+package es.codeurjc.web.nitflex.rest;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.film.FilmSimpleDTO;
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.FavoriteFilmService;
+import es.codeurjc.web.nitflex.service.FilmDetailCache;
+import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.ReviewService;
+import io.restassured.RestAssured;
+import io.restassured.response.ValidatableResponse;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class FilmDetailCacheTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private FavoriteFilmService favoriteFilmService;
+
+    @Autowired
+    private FilmDetailCache filmDetailCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser;
+
+    @BeforeEach
+    public void setUp() {
+        RestAssured.port = port;
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.basePath = "/api";
+        testUser = userRepository.save(new User("testuser", "testuser@example.com"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void whenFilmIsRequestedTwice_thenSecondTimeIsACacheHit() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Cached", "Synopsis", 2020, "+12"));
+        long hits = filmDetailCache.stats().hits();
+
+        getFilm(film.id()).body("title", equalTo("Cached"));
+        getFilm(film.id()).body("title", equalTo("Cached"));
+
+        assertThat(filmDetailCache.stats().hits()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    public void whenFilmChanges_thenCachedFilmIsInvalidated() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Cached", "Synopsis", 2020, "+12"));
+        getFilm(film.id());
+
+        filmService.update(film.id(), new FilmSimpleDTO(film.id(), "Updated", "Synopsis", 2020, "+12"));
+        getFilm(film.id()).body("title", equalTo("Updated"));
+
+        reviewService.addReview(film.id(), new CreateReviewRequest("Great", 5));
+        getFilm(film.id()).body("reviews.text", contains("Great"));
+
+        favoriteFilmService.addToFavorites(film.id());
+        getFilm(film.id()).body("usersThatLiked.name", contains("testuser"));
+
+        favoriteFilmService.removeFromFavorites(film.id());
+        getFilm(film.id()).body("usersThatLiked", empty());
+    }
+
+    @Test
+    public void whenFilmIsDeleted_thenItIsNotFoundWithoutQueryingTheDatabase() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Deleted", "Synopsis", 2020, "+12"));
+        getFilm(film.id());
+
+        given().when().delete("/films/{id}", film.id()).then().statusCode(204);
+        long deletedHits = filmDetailCache.stats().deletedHits();
+
+        given().when().get("/films/{id}", film.id()).then().statusCode(404);
+        assertThat(filmDetailCache.stats().deletedHits()).isEqualTo(deletedHits + 1);
+    }
+
+    private ValidatableResponse getFilm(long id) {
+        return given().when().get("/films/{id}", id).then().statusCode(200);
+    }
+}
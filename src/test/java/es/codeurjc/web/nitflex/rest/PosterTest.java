@@ -0,0 +1,146 @@
+package es.codeurjc.web.nitflex.rest;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayInputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import es.codeurjc.web.nitflex.ImageTestUtils;
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.utils.PosterSize;
+import io.restassured.RestAssured;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class PosterTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User testUser;
+
+    @BeforeEach
+    public void setUp() {
+        RestAssured.port = port;
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.basePath = "/";
+        testUser = userRepository.save(new User("testuser", "testuser@example.com"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRepository.delete(testUser);
+    }
+
+    @Test
+    public void whenPosterIsRequestedWithItsETag_thenNotModifiedIsReturned() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Deadpool", "Synopsis", 2016, "+18"),
+                ImageTestUtils.createSampleImage());
+
+        String eTag = given()
+                .when()
+                .get("/films/{id}/poster", film.id())
+                .then()
+                .statusCode(200)
+                .contentType("image/jpeg")
+                .header("Last-Modified", notNullValue())
+                .header("Cache-Control", containsString("no-cache"))
+                .extract()
+                .header("ETag");
+
+        given()
+                .header("If-None-Match", eTag)
+                .when()
+                .get("/films/{id}/poster", film.id())
+                .then()
+                .statusCode(304);
+    }
+
+    @Test
+    public void whenPosterIsRequestedWithItsVersion_thenItIsCachedForGood() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Deadpool", "Synopsis", 2016, "+18"),
+                ImageTestUtils.createSampleImage());
+        String hash = filmService.getPoster(film.id()).orElseThrow().hash();
+
+        given()
+                .queryParam("v", hash)
+                .when()
+                .get("/films/{id}/poster", film.id())
+                .then()
+                .statusCode(200)
+                .header("Cache-Control", containsString("max-age=31536000"))
+                .header("Cache-Control", containsString("immutable"));
+    }
+
+    @Test
+    public void whenPosterRangeIsRequested_thenOnlyThatRangeIsReturned() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Deadpool", "Synopsis", 2016, "+18"),
+                ImageTestUtils.createSampleImage());
+
+        given()
+                .header("Range", "bytes=0-99")
+                .when()
+                .get("/films/{id}/poster", film.id())
+                .then()
+                .statusCode(206)
+                .header("Content-Length", equalTo("100"))
+                .header("Content-Range", startsWith("bytes 0-99/"));
+    }
+
+    @Test
+    public void whenFilmHasNoPoster_thenDefaultImageIsReturned() {
+        FilmDTO film = filmService.save(new CreateFilmRequest("No poster", "Synopsis", 2016, "+18"));
+
+        given()
+                .when()
+                .get("/films/{id}/poster", film.id())
+                .then()
+                .statusCode(200)
+                .contentType("image/png")
+                .header("ETag", notNullValue());
+    }
+
+    @Test
+    public void whenPosterIsUploaded_thenScaledVariantsAreGeneratedInBackground() throws Exception {
+        FilmDTO film = filmService.save(new CreateFilmRequest("Deadpool", "Synopsis", 2016, "+18"),
+                ImageTestUtils.createSampleImage());
+
+        // Wait for the variant to be generated
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!filmService.getPoster(film.id()).orElseThrow().hasVariant(PosterSize.THUMB) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+
+        byte[] thumb = given()
+                .queryParam("size", "thumb")
+                .when()
+                .get("/films/{id}/poster", film.id())
+                .then()
+                .statusCode(200)
+                .contentType("image/jpeg")
+                .header("ETag", endsWith("-thumb\""))
+                .extract()
+                .asByteArray();
+
+        assertThat(ImageIO.read(new ByteArrayInputStream(thumb)).getWidth()).isEqualTo(PosterSize.THUMB.getWidth());
+    }
+}
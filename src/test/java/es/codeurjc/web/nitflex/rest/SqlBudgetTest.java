@@ -0,0 +1,129 @@
+package es.codeurjc.web.nitflex.rest;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.dto.review.CreateReviewRequest;
+import es.codeurjc.web.nitflex.model.User;
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.ReviewService;
+import es.codeurjc.web.nitflex.service.UserService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+
+/**
+ * SQL statements of the main endpoints, counted by the SqlCountingDataSource, so that a
+ * change that loads an association once per row fails here instead of in production
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.datasource.url=jdbc:h2:mem:sqlbudgetdb")
+public class SqlBudgetTest {
+
+    private static final int REVIEWS = 5;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    private FilmDTO film;
+
+    @BeforeEach
+    public void setUp() {
+        user = userRepository.save(new User("testuser", "testuser@example.com"));
+        film = filmService.save(new CreateFilmRequest("Budget", "A film with reviews", 2020, "+12"));
+        for (int i = 0; i < REVIEWS; i++) {
+            reviewService.addReview(film.id(), new CreateReviewRequest("Review " + i, 4));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userService.deleteUser(user.getId());
+        if (filmRepository.existsById(film.id())) {
+            filmService.delete(film.id());
+        }
+    }
+
+    @Test
+    public void filmEndpointsStayWithinTheirBudgets() {
+        // The film, its likers and its reviews, each in one query whatever their number
+        assertThat(statements("GET", "/api/films/{id}", () -> api().get("/api/films/{id}", film.id())
+                .then().statusCode(200))).isLessThanOrEqualTo(3);
+        assertThat(statements("GET", "/api/films/{id}", () -> api().get("/api/films/{id}", film.id())
+                .then().statusCode(200))).isZero();
+        assertThat(statements("GET", "/api/films/", () -> api().get("/api/films/")
+                .then().statusCode(200))).isLessThanOrEqualTo(3);
+
+        assertThat(statements("POST", "/api/films/{filmId}/reviews/", () -> api().contentType(ContentType.JSON)
+                .body("{\"text\": \"Another review\", \"score\": 5}")
+                .post("/api/films/{filmId}/reviews/", film.id())
+                .then().statusCode(201))).isLessThanOrEqualTo(8);
+        assertThat(statements("POST", "/films/{filmId}/addFavorite", () -> api().post("/films/{filmId}/addFavorite", film.id())
+                .then().statusCode(302))).isLessThanOrEqualTo(5);
+        assertThat(statements("GET", "/films/{id}", () -> api().get("/films/{id}", film.id())
+                .then().statusCode(200))).isLessThanOrEqualTo(8);
+
+        // The favorites and reviews of the film are deleted in bulk, not per user
+        assertThat(statements("DELETE", "/api/films/{id}", () -> api().delete("/api/films/{id}", film.id())
+                .then().statusCode(204))).isLessThanOrEqualTo(7);
+    }
+
+    private RequestSpecification api() {
+        return given().baseUri("http://localhost").port(port).basePath("");
+    }
+
+    /**
+     * Sends the request and returns the statements it executed. They are recorded once
+     * the filter chain returns, which may be after the client has read the response.
+     */
+    private long statements(String method, String uri, Runnable request) {
+        DistributionSummary before = summary(method, uri);
+        long count = before == null ? 0 : before.count();
+        double total = before == null ? 0 : before.totalAmount();
+        request.run();
+        long deadline = System.currentTimeMillis() + 5000;
+        DistributionSummary after = summary(method, uri);
+        while ((after == null || after.count() == count) && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+            after = summary(method, uri);
+        }
+        assertThat(after).isNotNull();
+        assertThat(after.count()).isEqualTo(count + 1);
+        return Math.round(after.totalAmount() - total);
+    }
+
+    private DistributionSummary summary(String method, String uri) {
+        return meterRegistry.find("nitflex.http.sql.statements").tags("method", method, "uri", uri).summary();
+    }
+}
@@ -0,0 +1,78 @@
+package es.codeurjc.web.nitflex.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import es.codeurjc.web.nitflex.service.recommendation.CoOccurrenceMatrix;
+import es.codeurjc.web.nitflex.service.recommendation.CoOccurrenceMatrix.RelatedFilm;
+
+public class CoOccurrenceMatrixTest {
+
+    @Test
+    public void whenFavoritesChange_thenTheMatrixMatchesAFullBuild() {
+        Random random = new Random(42);
+        CoOccurrenceMatrix matrix = new CoOccurrenceMatrix();
+        Map<Long, Set<Long>> favorites = new HashMap<>();
+
+        // Enough users to split the build among several tasks
+        for (int i = 0; i < 20000; i++) {
+            long userId = random.nextInt(1000);
+            long filmId = random.nextInt(40);
+            switch (random.nextInt(10)) {
+                case 0 -> {
+                    favorites.remove(userId);
+                    matrix.removeUser(userId);
+                }
+                case 1 -> {
+                    favorites.values().forEach(films -> films.remove(filmId));
+                    matrix.removeFilm(filmId);
+                }
+                case 2, 3, 4 -> {
+                    Set<Long> films = favorites.get(userId);
+                    assertThat(matrix.unlike(userId, filmId)).isEqualTo(films != null && films.remove(filmId));
+                }
+                default -> assertThat(matrix.like(userId, filmId))
+                        .isEqualTo(favorites.computeIfAbsent(userId, id -> new HashSet<>()).add(filmId));
+            }
+        }
+
+        CoOccurrenceMatrix built = CoOccurrenceMatrix.build(favorites, ForkJoinPool.commonPool());
+        for (long filmId = 0; filmId < 40; filmId++) {
+            assertThat(matrix.related(filmId, 5)).as("film " + filmId).isEqualTo(built.related(filmId, 5));
+        }
+    }
+
+    @Test
+    public void whenFilmsAreRelated_thenTheyAreRankedBySimilarity() {
+        CoOccurrenceMatrix matrix = new CoOccurrenceMatrix();
+        // Film 2 is liked by everyone, film 3 only by those who like film 1
+        for (long userId = 1; userId <= 4; userId++) {
+            matrix.like(userId, 2);
+        }
+        for (long userId = 1; userId <= 2; userId++) {
+            matrix.like(userId, 1);
+            matrix.like(userId, 3);
+        }
+        matrix.like(3, 4);
+        matrix.like(1, 4);
+
+        assertThat(matrix.related(1, 10)).extracting(RelatedFilm::filmId).containsExactly(3L, 2L, 4L);
+        assertThat(matrix.related(1, 10).get(0)).isEqualTo(new RelatedFilm(3, 2, 1.0));
+        assertThat(matrix.related(1, 1)).extracting(RelatedFilm::filmId).containsExactly(3L);
+        assertThat(matrix.related(5, 10)).isEmpty();
+
+        matrix.removeUser(1);
+        assertThat(matrix.related(1, 10)).extracting(RelatedFilm::filmId).containsExactly(3L, 2L);
+        matrix.removeFilm(3);
+        assertThat(matrix.related(1, 10)).extracting(RelatedFilm::filmId).containsExactly(2L);
+    }
+}
@@ -0,0 +1,53 @@
+package es.codeurjc.web.nitflex.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+import es.codeurjc.web.nitflex.utils.ConcurrencyLimitedDataSource;
+
+public class ConcurrencyLimitedDataSourceTest {
+
+    @Test
+    public void whenAllPermitsAreTaken_thenCallersWaitUntilAConnectionIsClosed() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        Connection pooled = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(pooled);
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(pool, 1, Duration.ofMillis(50));
+
+        Connection first = dataSource.getConnection();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        first.close();
+        first.close();
+        assertThat(first.isClosed()).isTrue();
+        verify(pooled, times(1)).close();
+
+        Connection second = dataSource.getConnection();
+        second.close();
+        verify(pool, times(2)).getConnection();
+    }
+
+    @Test
+    public void whenThePoolFails_thenThePermitIsReleased() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenThrow(new SQLException("Pool closed"));
+        ConcurrencyLimitedDataSource dataSource = new ConcurrencyLimitedDataSource(pool, 1, Duration.ofMillis(50));
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(dataSource::getConnection).hasMessage("Pool closed");
+        }
+    }
+}
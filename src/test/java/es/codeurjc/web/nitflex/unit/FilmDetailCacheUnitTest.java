@@ -0,0 +1,101 @@
+package es.codeurjc.web.nitflex.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.codeurjc.web.nitflex.dto.film.FilmDTO;
+import es.codeurjc.web.nitflex.service.FilmDetailCache;
+
+public class FilmDetailCacheUnitTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void whenCacheIsFull_thenLeastRecentlyReadFilmsAreEvictedToTheLowWaterMark() throws Exception {
+        long filmBytes = objectMapper.writeValueAsBytes(film(10)).length;
+        FilmDetailCache cache = new FilmDetailCache(objectMapper, filmBytes * 10, 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (long id = 11; id <= 20; id++) {
+            cache.get(id, filmId -> load(filmId, loads));
+        }
+        Thread.sleep(1);
+        cache.get(11, id -> load(id, loads));
+        cache.get(21, id -> load(id, loads));
+
+        // Down to 90% of the bytes: the two least recently read films
+        assertThat(cache.stats().evictions()).isEqualTo(2);
+        assertThat(cache.stats().entries()).isEqualTo(9);
+        loads.set(0);
+        cache.get(11, id -> load(id, loads));
+        for (long id = 14; id <= 21; id++) {
+            cache.get(id, filmId -> load(filmId, loads));
+        }
+        assertThat(loads).hasValue(0);
+        cache.get(12, id -> load(id, loads));
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void whenFilmsAreReadAndInvalidatedConcurrently_thenSizeMatchesTheEntries() throws Exception {
+        long filmBytes = objectMapper.writeValueAsBytes(film(10)).length;
+        FilmDetailCache cache = new FilmDetailCache(objectMapper, filmBytes * 20, 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long seed = t;
+                tasks.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20_000; i++) {
+                        long id = 10 + random.nextInt(50);
+                        if (random.nextInt(10) == 0) {
+                            cache.invalidate(id);
+                        } else {
+                            cache.get(id, filmId -> load(filmId, loads));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        FilmDetailCache.Stats stats = cache.stats();
+        assertThat(stats.sizeBytes()).isEqualTo(stats.entries() * filmBytes);
+        assertThat(stats.sizeBytes()).isLessThanOrEqualTo(filmBytes * 20);
+
+        cache.invalidateAll();
+        assertThat(cache.stats().entries()).isZero();
+        assertThat(cache.stats().sizeBytes()).isZero();
+    }
+
+    private Optional<FilmDTO> load(long id, AtomicInteger loads) {
+        loads.incrementAndGet();
+        return Optional.of(film(id));
+    }
+
+    /**
+     * All the films with ids of two digits have the same size
+     */
+    private static FilmDTO film(long id) {
+        return new FilmDTO(id, "Film " + id, "Synopsis", 2020, "+12", List.of(), List.of(), 0, 0, 0);
+    }
+}
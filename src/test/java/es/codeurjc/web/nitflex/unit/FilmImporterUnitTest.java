@@ -0,0 +1,52 @@
+package es.codeurjc.web.nitflex.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.codeurjc.web.nitflex.dto.film.FilmImportReport;
+import es.codeurjc.web.nitflex.dto.film.FilmImportRow;
+import es.codeurjc.web.nitflex.service.importer.FilmImportFormat;
+import es.codeurjc.web.nitflex.service.importer.FilmImportService;
+import es.codeurjc.web.nitflex.service.importer.FilmImporter;
+
+public class FilmImporterUnitTest {
+
+    @Test
+    public void whenARowCannotBeStored_thenOnlyThatRowIsRejected() throws IOException {
+        FilmImportService filmImportService = mock(FilmImportService.class);
+        // The database rejects the film titled "Broken", and any chunk that contains it
+        when(filmImportService.insert(anyList())).thenAnswer(invocation -> {
+            List<FilmImportRow> rows = invocation.getArgument(0);
+            if (rows.stream().anyMatch(row -> row.title().equals("Broken"))) {
+                throw new IllegalStateException("Constraint violation");
+            }
+            return 0;
+        });
+        FilmImporter filmImporter = new FilmImporter(filmImportService, new ObjectMapper());
+        String input = """
+                title,synopsis,releaseYear,ageRating
+                First,Synopsis,2001,+7
+                Broken,Synopsis,2001,+7
+                %s,Synopsis,2001,+7
+                Last,Synopsis,2001,+7
+                """.formatted("T".repeat(256));
+
+        FilmImportReport report = filmImporter.importFilms(new StringReader(input), FilmImportFormat.CSV);
+
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.rejected()).isEqualTo(2);
+        assertThat(report.rejectedRows()).extracting(FilmImportReport.RejectedRow::line).containsExactly(4L, 3L);
+        assertThat(report.rejectedRows()).extracting(FilmImportReport.RejectedRow::reason)
+                .containsExactly("The title is too long", "The film cannot be stored");
+    }
+}
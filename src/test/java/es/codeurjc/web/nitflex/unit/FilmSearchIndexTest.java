@@ -0,0 +1,26 @@
+package es.codeurjc.web.nitflex.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import es.codeurjc.web.nitflex.service.search.FilmSearchIndex;
+
+public class FilmSearchIndexTest {
+
+    @Test
+    public void whenAFilmIsUpdatedManyTimes_thenTheIndexStaysBounded() {
+        FilmSearchIndex index = new FilmSearchIndex();
+        index.put(FilmSearchIndex.analyze(2, "Dune", "Sand and spice"));
+
+        for (int i = 0; i < 10_000; i++) {
+            index.put(FilmSearchIndex.analyze(1, "Star wars " + i, "A galaxy far away"));
+        }
+
+        assertThat(index.size()).isEqualTo(2);
+        // The removed versions are dropped once they outnumber the live films, above a minimum
+        assertThat(index.documentCount()).isLessThanOrEqualTo(1100);
+        assertThat(index.search("star 9999", 10)).extracting(FilmSearchIndex.Hit::filmId).containsExactly(1L);
+        assertThat(index.search("spice", 10)).extracting(FilmSearchIndex.Hit::filmId).containsExactly(2L);
+    }
+}
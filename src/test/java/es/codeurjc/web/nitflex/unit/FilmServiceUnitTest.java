@@ -5,25 +5,26 @@ import static org.mockito.Mockito.*;
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
-import java.util.Optional;
 import java.sql.Blob;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mapstruct.factory.Mappers;
+import org.springframework.context.ApplicationEventPublisher;
 
 import es.codeurjc.web.nitflex.model.Film;
-import es.codeurjc.web.nitflex.model.User;
 import es.codeurjc.web.nitflex.repository.FilmRepository;
-import es.codeurjc.web.nitflex.repository.UserRepository;
+import es.codeurjc.web.nitflex.service.FilmDTOAssembler;
 import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.events.FilmDeletedEvent;
 import es.codeurjc.web.nitflex.service.exceptions.FilmNotFoundException;
+import es.codeurjc.web.nitflex.service.storage.PosterStorage;
 import es.codeurjc.web.nitflex.utils.ImageUtils;
 import es.codeurjc.web.nitflex.dto.film.CreateFilmRequest;
 import es.codeurjc.web.nitflex.dto.film.FilmMapper;
@@ -38,10 +39,16 @@ public class FilmServiceUnitTest {
     private FilmRepository filmRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private ImageUtils imageUtils;
 
     @Mock
-    private ImageUtils imageUtils;
+    private FilmDTOAssembler filmDTOAssembler;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PosterStorage posterStorage;
 
     @InjectMocks
     private FilmService filmService;
@@ -52,44 +59,33 @@ public class FilmServiceUnitTest {
     public void setUp() {
         MockitoAnnotations.openMocks(this);
         filmMapper = Mappers.getMapper(FilmMapper.class);
-        filmService = new FilmService(filmRepository, userRepository, imageUtils, filmMapper);
+        filmService = new FilmService(filmRepository, imageUtils, filmMapper, filmDTOAssembler, eventPublisher,
+                posterStorage);
     }
 
     @Test // Gabriel
     public void whenDeleteExistingFilm_thenFilmMustRemovedFromRepositoryAndUsersFavorites() {
         // Arrange
         long filmId = 1L;
-        Film film = new Film();
-        film.setId(filmId);
-        Set<User> usersThatLiked = new HashSet<>();
-
-        // Crear varios usuarios y añadir la película a sus favoritos
-        for (int i = 0; i < 3; i++) {
-            User user = new User();
-            user.setId((long) i);
-            user.setFavoriteFilms(new ArrayList<>());
-            user.getFavoriteFilms().add(film);
-            usersThatLiked.add(user);
-            film.addUser(user);
 
-        }
-
-        // Uso de mock para que simule la busqueda de la película en el repositorio
-        when(filmRepository.findById(filmId)).thenReturn(Optional.of(film));
+        // Uso de mock para que simule que la película existe en el repositorio
+        when(filmRepository.findExistingIds(Set.of(filmId))).thenReturn(List.of(filmId));
 
         // Act
         filmService.delete(filmId);
 
-        // Assert
-        assertThat(filmRepository.findById(filmId)).isNotIn(filmRepository);
-        for (User user : usersThatLiked) {
-            assertThat(user.getFavoriteFilms()).doesNotContain(film);
-        }
+        // Assert: favorites, reviews and film are deleted with one statement each, in that order
+        InOrder inOrder = inOrder(filmRepository);
+        inOrder.verify(filmRepository).deleteFavoritesByFilmIds(Set.of(filmId));
+        inOrder.verify(filmRepository).deleteReviewsByFilmIds(Set.of(filmId));
+        inOrder.verify(filmRepository).deleteFilmsByIds(Set.of(filmId));
+        verify(eventPublisher).publishEvent(new FilmDeletedEvent(filmId));
     }
     @Test // Cassiel
     public void whenSavefilmWithoutImageAndValidTitle_thenIsSavedInRepository(){
         // Arrange
         CreateFilmRequest filmRequest = new CreateFilmRequest("Spider-Man: Cruzando el Multiverso", "Synopsis", 2025, "+12");
+        when(filmRepository.save(any(Film.class))).thenAnswer(invocation -> invocation.getArgument(0));
         //Act
         filmService.save(filmRequest);
         // Assert
@@ -102,7 +98,7 @@ public class FilmServiceUnitTest {
         long filmId = 1L;
         String expectedErrorMessage = "Film not found with id: " + filmId;
 
-        when(filmRepository.findById(filmId)).thenReturn(Optional.empty());
+        when(filmRepository.findExistingIds(Set.of(filmId))).thenReturn(List.of());
 
         // Act & Assert
         FilmNotFoundException exception = assertThrows(FilmNotFoundException.class, () -> {
@@ -113,7 +109,7 @@ public class FilmServiceUnitTest {
         assertThat(exception.getMessage()).isEqualTo(expectedErrorMessage);
 
         // Compruebo que no se ha eliminado del repositorio
-        verify(filmRepository, never()).deleteById(filmId);
+        verify(filmRepository, never()).deleteFilmsByIds(any());
     }
 
     @Test // Marcos
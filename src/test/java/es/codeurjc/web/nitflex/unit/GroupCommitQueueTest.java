@@ -0,0 +1,70 @@
+package es.codeurjc.web.nitflex.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.codeurjc.web.nitflex.utils.GroupCommitQueue;
+
+public class GroupCommitQueueTest {
+
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(
+            mock(PlatformTransactionManager.class));
+
+    @Test
+    public void whenTheWriterThrowsAnError_thenOnlyItsRequestFails() {
+        try (GroupCommitQueue<Integer, Integer> queue = new GroupCommitQueue<>("test-group-commit", 10,
+                Duration.ZERO, Duration.ofSeconds(5), transactionTemplate, requests -> {
+                    if (requests.contains(0)) {
+                        throw new StackOverflowError();
+                    }
+                    return requests.stream().map(request -> request * 2).toList();
+                })) {
+
+            assertThatThrownBy(() -> queue.submit(0)).hasCauseInstanceOf(StackOverflowError.class);
+            assertThat(queue.submit(21)).isEqualTo(42);
+        }
+    }
+
+    @Test
+    public void whenTheCommitTakesTooLong_thenTheCallerStopsWaiting() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (GroupCommitQueue<Integer, Integer> queue = new GroupCommitQueue<>("test-group-commit", 1,
+                Duration.ZERO, Duration.ofMillis(100), transactionTemplate, requests -> {
+                    writing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return List.copyOf(requests);
+                })) {
+
+            Thread.ofVirtual().start(() -> {
+                try {
+                    queue.submit(1);
+                } catch (IllegalStateException e) {
+                    // Times out too, only keeps the writer busy
+                }
+            });
+            assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Still queued behind the first request, so it is never written
+            assertThatThrownBy(() -> queue.submit(2))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("not written");
+            release.countDown();
+            assertThat(queue.submit(3)).isEqualTo(3);
+        }
+    }
+}
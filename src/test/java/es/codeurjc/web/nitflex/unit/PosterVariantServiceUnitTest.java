@@ -0,0 +1,65 @@
+package es.codeurjc.web.nitflex.unit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.image.BufferedImage;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.service.FilmService;
+import es.codeurjc.web.nitflex.service.PosterVariantService;
+import es.codeurjc.web.nitflex.service.events.PosterUploadedEvent;
+import es.codeurjc.web.nitflex.service.events.PostersReleasedEvent;
+import es.codeurjc.web.nitflex.service.storage.PosterStorage;
+import es.codeurjc.web.nitflex.utils.ImageUtils;
+
+public class PosterVariantServiceUnitTest {
+
+    private final FilmRepository filmRepository = mock(FilmRepository.class);
+    private final ImageUtils imageUtils = mock(ImageUtils.class);
+    private final PosterStorage posterStorage = mock(PosterStorage.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final PosterVariantService posterVariantService = new PosterVariantService(filmRepository,
+            mock(FilmService.class), imageUtils, posterStorage, eventPublisher);
+
+    @BeforeEach
+    public void setUp() {
+        byte[] thumb = { 1 };
+        byte[] card = { 2 };
+        when(imageUtils.decode(any())).thenReturn(Optional.of(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB)));
+        when(imageUtils.scaleToJpeg(any(), anyInt())).thenReturn(thumb, card);
+        when(posterStorage.store(thumb)).thenReturn("thumb");
+        when(posterStorage.store(card)).thenReturn("card");
+    }
+
+    @Test
+    public void whenPosterIsReplacedWhileItsVariantsAreGenerated_thenTheVariantsAreReleased() {
+        when(filmRepository.updatePosterVariants(anyLong(), anyString(), anyString(), anyString())).thenReturn(0);
+
+        posterVariantService.onPosterUploaded(new PosterUploadedEvent(1, "poster", new byte[0]));
+
+        verify(eventPublisher).publishEvent(new PostersReleasedEvent(Set.of("thumb", "card")));
+    }
+
+    @Test
+    public void whenPosterIsStillCurrent_thenTheVariantsAreKept() {
+        when(filmRepository.updatePosterVariants(1, "poster", "thumb", "card")).thenReturn(1);
+
+        posterVariantService.onPosterUploaded(new PosterUploadedEvent(1, "poster", new byte[0]));
+
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+}
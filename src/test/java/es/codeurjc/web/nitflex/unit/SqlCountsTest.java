@@ -0,0 +1,57 @@
+package es.codeurjc.web.nitflex.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import es.codeurjc.web.nitflex.utils.SqlCountingDataSource;
+import es.codeurjc.web.nitflex.utils.SqlCounts;
+
+public class SqlCountsTest {
+
+    @Test
+    public void whenCounting_thenStatementsAreGroupedByShape() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:sqlcountstest;DB_CLOSE_DELAY=-1");
+        SqlCountingDataSource dataSource = new SqlCountingDataSource(h2);
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table item (id bigint primary key, name varchar(20))");
+            statement.execute("insert into item values (1, 'one'), (2, 'two'), (3, 'three')");
+
+            SqlCounts counts = SqlCounts.start();
+            try {
+                for (long id = 1; id <= 3; id++) {
+                    try (PreparedStatement select = connection.prepareStatement("select name from item where id = ?")) {
+                        select.setLong(1, id);
+                        try (ResultSet result = select.executeQuery()) {
+                            result.next();
+                        }
+                    }
+                }
+                // Statements are only wrapped if created while counting
+                try (Statement counted = connection.createStatement();
+                        ResultSet result = counted.executeQuery("select name from item where name in ('one', 'two')")) {
+                    while (result.next()) {
+                        // Every row read is counted
+                    }
+                }
+            } finally {
+                counts.stop();
+            }
+
+            assertThat(SqlCounts.current()).isNull();
+            assertThat(counts.statements()).isEqualTo(4);
+            assertThat(counts.rows()).isEqualTo(5);
+            assertThat(counts.shapes()).containsExactly(
+                    "3 x select name from item where id = ?",
+                    "1 x select name from item where name in (?...)");
+        }
+    }
+}
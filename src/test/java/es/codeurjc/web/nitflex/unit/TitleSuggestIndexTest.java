@@ -0,0 +1,72 @@
+package es.codeurjc.web.nitflex.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import es.codeurjc.web.nitflex.dto.film.FilmSuggestion;
+import es.codeurjc.web.nitflex.service.search.FilmTextAnalyzer;
+import es.codeurjc.web.nitflex.service.search.TitleSuggestIndex;
+
+public class TitleSuggestIndexTest {
+
+    private static final String[] WORDS = { "star", "stars", "starship", "stone", "sky", "dune", "día", "Dios", "mar" };
+
+    @Test
+    public void whenFilmsChange_thenSuggestionsMatchAFullScan() {
+        Random random = new Random(42);
+        TitleSuggestIndex index = new TitleSuggestIndex();
+        Map<Long, FilmSuggestion> films = new HashMap<>();
+
+        // Enough changes to rebuild the sorted keys several times, with films pending in between
+        for (int i = 0; i < 2000; i++) {
+            long id = random.nextInt(600);
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    films.remove(id);
+                    index.remove(id);
+                }
+                case 1 -> {
+                    FilmSuggestion film = films.get(id);
+                    if (film != null) {
+                        long likes = random.nextInt(3) - 1;
+                        films.put(id, new FilmSuggestion(id, film.title(), Math.max(0, film.likeCount() + likes)));
+                        index.addLikes(id, likes);
+                    }
+                }
+                default -> {
+                    String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+                    long likes = random.nextInt(50);
+                    films.put(id, new FilmSuggestion(id, title, likes));
+                    index.put(id, title, likes);
+                }
+            }
+        }
+
+        for (String prefix : List.of("s", "sta", "STAR", "starsh", "di", "DÍA", "mar", "x")) {
+            assertThat(index.suggest(prefix, 7)).as(prefix).isEqualTo(fullScan(films, prefix, 7));
+        }
+    }
+
+    private static List<FilmSuggestion> fullScan(Map<Long, FilmSuggestion> films, String prefix, int limit) {
+        String folded = FilmTextAnalyzer.fold(prefix);
+        List<FilmSuggestion> matching = new ArrayList<>();
+        for (FilmSuggestion film : films.values()) {
+            for (String word : FilmTextAnalyzer.fold(film.title()).split(" ")) {
+                if (word.startsWith(folded)) {
+                    matching.add(film);
+                    break;
+                }
+            }
+        }
+        matching.sort(Comparator.comparingLong(FilmSuggestion::likeCount).reversed().thenComparingLong(FilmSuggestion::id));
+        return matching.subList(0, Math.min(limit, matching.size()));
+    }
+}
@@ -0,0 +1,69 @@
+package es.codeurjc.web.nitflex.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import es.codeurjc.web.nitflex.service.trending.TrendingScores;
+
+public class TrendingScoresTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    @Test
+    public void whenTimePasses_thenScoresHalveEveryHalfLife() {
+        TrendingScores scores = new TrendingScores(Duration.ofHours(1), 10);
+        long now = 1_700_000_000_000L;
+        scores.add(1, 4, now);
+        scores.add(1, 2, now + HOUR);
+
+        assertThat(scores.scoreAt(1, now + HOUR)).isCloseTo(4, within(1e-9));
+        assertThat(scores.scoreAt(1, now + 3 * HOUR)).isCloseTo(1, within(1e-9));
+        assertThat(scores.scoreAt(2, now)).isZero();
+    }
+
+    @Test
+    public void whenScoresChange_thenTheTopMatchesAFullSort() {
+        Random random = new Random(42);
+        TrendingScores scores = new TrendingScores(Duration.ofHours(1), 20);
+        // The events of each film, as {weight, time}
+        Map<Long, List<long[]>> events = new HashMap<>();
+        long now = 1_700_000_000_000L;
+
+        // Enough removals of films in the heap to refill it several times
+        for (int i = 0; i < 5000; i++) {
+            long filmId = random.nextInt(200);
+            now += random.nextInt(60_000);
+            if (random.nextInt(20) == 0) {
+                events.remove(filmId);
+                scores.remove(filmId);
+            } else {
+                int weight = 1 + random.nextInt(3);
+                events.computeIfAbsent(filmId, id -> new ArrayList<>()).add(new long[] { weight, now });
+                scores.add(filmId, weight, now);
+            }
+        }
+
+        long at = now;
+        Map<Long, Double> expected = new HashMap<>();
+        events.forEach((filmId, filmEvents) -> expected.put(filmId, filmEvents.stream()
+                .mapToDouble(event -> event[0] * Math.pow(2, -(double) (at - event[1]) / HOUR)).sum()));
+        List<Long> fullSort = expected.keySet().stream()
+                .sorted(Comparator.comparingDouble(expected::get).reversed())
+                .limit(15)
+                .toList();
+
+        assertThat(scores.top(15)).isEqualTo(fullSort);
+        assertThat(scores.top(100)).hasSize(20);
+        expected.forEach((filmId, score) -> assertThat(scores.scoreAt(filmId, at)).isCloseTo(score, within(score * 1e-9)));
+    }
+}
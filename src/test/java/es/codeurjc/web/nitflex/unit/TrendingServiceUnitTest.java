@@ -0,0 +1,43 @@
+package es.codeurjc.web.nitflex.unit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+
+import es.codeurjc.web.nitflex.repository.FilmRepository;
+import es.codeurjc.web.nitflex.repository.ReviewRepository;
+import es.codeurjc.web.nitflex.repository.TrendingScoreRepository;
+import es.codeurjc.web.nitflex.service.events.ReviewChangedEvent;
+import es.codeurjc.web.nitflex.service.trending.TrendingService;
+
+public class TrendingServiceUnitTest {
+
+    @Test
+    public void whenTheCheckpointFailsToCommit_thenTheNextOneWritesTheScoresAgain() {
+        TrendingScoreRepository trendingScoreRepository = mock(TrendingScoreRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        doThrow(new TransactionSystemException("Commit failed")).doNothing().when(transactionManager).commit(any());
+        TrendingService trendingService = new TrendingService(mock(FilmRepository.class),
+                mock(ReviewRepository.class), trendingScoreRepository, transactionManager, Duration.ofHours(24));
+        trendingService.load();
+        trendingService.onReviewChanged(new ReviewChangedEvent(1, 1, true));
+
+        assertThatThrownBy(trendingService::checkpoint).isInstanceOf(TransactionSystemException.class);
+
+        assertThat(trendingService.checkpoint()).isEqualTo(1);
+        verify(trendingScoreRepository, times(2)).saveScore(eq(1L), anyDouble());
+        assertThat(trendingService.checkpoint()).isZero();
+    }
+}